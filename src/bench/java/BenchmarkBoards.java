@@ -0,0 +1,49 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Builds the game payloads shared by the benchmarks
+ */
+class BenchmarkBoards {
+
+    private static final String[] SYMBOLS = {"#", "#", "#", " ", "1", "2", "3", "F", "?"};
+
+    /**
+     * Returns the JSON of an undecided game with a square board of the given size
+     *
+     * @param size the rows and columns of the board
+     * @return the game JSON as the server sends it
+     */
+    static byte[] gameJson(int size) {
+        Random random = new Random(size);
+        StringBuilder sb = new StringBuilder(size * size * 4 + 256);
+        sb.append("{\"id\":1,\"user_id\":1,\"started_at\":\"2020-06-01T10:00:00.000Z\",\"ended_at\":null,")
+                .append("\"game_status\":\"undecided\",\"mines\":").append(size * size / 8).append(",\"board\":[");
+        for (int row = 0; row < size; row++) {
+            sb.append(row == 0 ? "[" : ",[");
+            for (int col = 0; col < size; col++) {
+                sb.append(col == 0 ? "\"" : ",\"").append(SYMBOLS[random.nextInt(SYMBOLS.length)]).append('"');
+            }
+            sb.append(']');
+        }
+        sb.append("]}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a parsed undecided game with a square board of the given size
+     *
+     * @param size the rows and columns of the board
+     * @return the game state
+     */
+    static GameState gameState(int size) {
+        try {
+            return new ObjectMapper().readValue(gameJson(size), GameState.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+import bench.DiffBenchmark;
+import bench.Fixture;
+
+/**
+ * Prepares the board diff measured by {@code bench.DiffBenchmark}
+ */
+public class DiffFixtures implements DiffBenchmark.Fixtures {
+
+    @Override
+    public Fixture diff(int size) throws Exception {
+        // A swipe that cleared a small area: 10 cells change
+        Board previous = BenchmarkBoards.gameState(size).board;
+        byte[] cells = previous.cells().clone();
+        for (int i = 0; i < 10; i++)
+            cells[cells.length / 2 + i] = Board.CLEARED;
+        Board next = new Board(size, size, cells);
+        return () -> BoardDiff.between(previous, next);
+    }
+}
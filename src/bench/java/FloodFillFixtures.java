@@ -0,0 +1,18 @@
+import bench.Fixture;
+import bench.FloodFillBenchmark;
+
+/**
+ * Prepares the embedded server swipe measured by {@code bench.FloodFillBenchmark}
+ */
+public class FloodFillFixtures implements FloodFillBenchmark.Fixtures {
+
+    @Override
+    public Fixture floodFill(int size) throws Exception {
+        // A swipe in the middle of a board without mines reveals every cell
+        EmbeddedGame game = new EmbeddedGame(1, 1, size, size, 0, 0);
+        return () -> {
+            game.reset();
+            return game.act(size / 2, size / 2, Action.SWIPE);
+        };
+    }
+}
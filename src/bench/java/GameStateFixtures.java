@@ -0,0 +1,40 @@
+import bench.Fixture;
+import bench.GameStateBenchmark;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Prepares the game state parsing measured by {@code bench.GameStateBenchmark}
+ */
+public class GameStateFixtures implements GameStateBenchmark.Fixtures {
+
+    @Override
+    public Fixture deserialize(int size) throws Exception {
+        byte[] json = BenchmarkBoards.gameJson(size);
+        ObjectMapper mapper = new ObjectMapper();
+        return () -> mapper.readValue(json, GameState.class);
+    }
+
+    @Override
+    public Fixture deserializeWithNewMapper(int size) throws Exception {
+        // One mapper per response, as HTTPClient did before sharing its readers
+        byte[] json = BenchmarkBoards.gameJson(size);
+        return () -> new ObjectMapper().readValue(json, GameState.class);
+    }
+
+    @Override
+    public Fixture status(int size) throws Exception {
+        // Reads only the status of a game, parsing its board anyway
+        byte[] json = BenchmarkBoards.gameJson(size);
+        ObjectReader reader = new ObjectMapper().readerFor(GameState.class);
+        return () -> ((GameState) reader.readValue(json)).game_status;
+    }
+
+    @Override
+    public Fixture statusLazy(int size) throws Exception {
+        byte[] json = BenchmarkBoards.gameJson(size);
+        ObjectReader reader = new ObjectMapper().readerFor(GameState.class)
+                .withAttribute(BoardDeserializer.LAZY, Boolean.TRUE);
+        return () -> ((GameState) reader.readValue(json)).game_status;
+    }
+}
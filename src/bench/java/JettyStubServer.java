@@ -0,0 +1,67 @@
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+
+/**
+ * A local server answering like {@link StubServer}, over HTTP/1.1 and cleartext HTTP/2 (h2c) on the same port
+ */
+class JettyStubServer {
+
+    private final Server server;
+    private final ServerConnector connector;
+
+    /**
+     * Starts a stub server on an ephemeral loopback port
+     *
+     * @param game the game JSON returned by game requests
+     */
+    JettyStubServer(byte[] game) throws Exception {
+        server = new Server();
+        HttpConfiguration config = new HttpConfiguration();
+        connector = new ServerConnector(server, new HttpConnectionFactory(config), new HTTP2CServerConnectionFactory(config));
+        connector.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                request.getInputStream().readAllBytes();
+                byte[] body = StubServer.body(request.getMethod(), request.getRequestURI(), game);
+                response.setStatus(StubServer.status(request.getMethod(), request.getRequestURI()));
+                response.setContentType("application/json");
+                response.setContentLength(body.length);
+                try (OutputStream out = response.getOutputStream()) {
+                    out.write(body);
+                }
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+    }
+
+    int getPort() {
+        return connector.getLocalPort();
+    }
+
+    String getHostname() {
+        return connector.getHost();
+    }
+
+    void stop() {
+        try {
+            server.stop();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+import bench.Fixture;
+import bench.RenderBenchmark;
+
+import java.io.OutputStream;
+
+/**
+ * Prepares the board rendering measured by {@code bench.RenderBenchmark}
+ */
+public class RenderFixtures implements RenderBenchmark.Fixtures {
+
+    @Override
+    public Fixture render(int size) throws Exception {
+        Game game = new Game(null, BenchmarkBoards.gameState(size));
+        return game::toString;
+    }
+
+    @Override
+    public Fixture renderStream(int size) throws Exception {
+        Game game = new Game(null, BenchmarkBoards.gameState(size));
+        BoardRenderer renderer = BoardRenderer.full();
+        OutputStream out = OutputStream.nullOutputStream();
+        return () -> {
+            renderer.render(game, out);
+            return out;
+        };
+    }
+}
@@ -0,0 +1,26 @@
+import bench.Fixture;
+import bench.RequestBodyBenchmark;
+
+/**
+ * Prepares the request building measured by {@code bench.RequestBodyBenchmark}
+ */
+public class RequestBodyFixtures implements RequestBodyBenchmark.Fixtures {
+
+    @Override
+    public Fixture loginRequest() throws Exception {
+        HTTPClient client = new HTTPClient("localhost", 4001);
+        return () -> client.loginRequest("user", "password");
+    }
+
+    @Override
+    public Fixture newGameRequest() throws Exception {
+        HTTPClient client = new HTTPClient("localhost", 4001);
+        return () -> client.newGameRequest("token", 16, 30, 99);
+    }
+
+    @Override
+    public Fixture doActionRequest() throws Exception {
+        HTTPClient client = new HTTPClient("localhost", 4001);
+        return () -> client.doActionRequest("token", 1, 7, 11, Action.SWIPE);
+    }
+}
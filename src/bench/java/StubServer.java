@@ -0,0 +1,72 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local server answering every Minesweeper API request with a fixed payload
+ */
+class StubServer {
+
+    private static final byte[] TOKEN = "{\"token\":\"benchmark\"}".getBytes();
+    private static final byte[] EMPTY = "{}".getBytes();
+
+    private final HttpServer server;
+
+    /**
+     * Starts a stub server on an ephemeral loopback port
+     *
+     * @param game the game JSON returned by game requests
+     */
+    StubServer(byte[] game) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            byte[] body = body(method, path, game);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status(method, path), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Returns the status of the stub response to a request
+     */
+    static int status(String method, String path) {
+        return path.equals("/games") && method.equals("POST") ? 201 : 200;
+    }
+
+    /**
+     * Returns the body of the stub response to a request
+     */
+    static byte[] body(String method, String path, byte[] game) {
+        if (path.equals("/login"))
+            return TOKEN;
+        if (path.endsWith("/board"))
+            return EMPTY;
+        return game;
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    String getHostname() {
+        return server.getAddress().getHostString();
+    }
+
+    void stop() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+}
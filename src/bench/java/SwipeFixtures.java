@@ -0,0 +1,56 @@
+import bench.Fixture;
+import bench.SwipeBenchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Prepares the swipes measured by {@code bench.SwipeBenchmark}
+ */
+public class SwipeFixtures implements SwipeBenchmark.Fixtures {
+
+    @Override
+    public Fixture swipe(int size) throws Exception {
+        StubServer server = new StubServer(BenchmarkBoards.gameJson(size));
+        MinesweeperClient client = new MinesweeperClient(server.getHostname(), server.getPort());
+        client.login("user", "password");
+        Game game = client.get_game(1);
+        return new Fixture() {
+            @Override
+            public Object run() {
+                return game.swipe(0, 0);
+            }
+
+            @Override
+            public void close() {
+                server.stop();
+            }
+        };
+    }
+
+    @Override
+    public Fixture replayedSwipe(int size) throws Exception {
+        // The same swipe as above, recorded once and then answered from the traffic log
+        Path log = Files.createTempFile("swipe", ".log");
+        log.toFile().deleteOnExit();
+        StubServer server = new StubServer(BenchmarkBoards.gameJson(size));
+        try (TrafficRecorder recorder = new TrafficRecorder(log)) {
+            MinesweeperClient recording = new MinesweeperClient(server.getHostname(), server.getPort(),
+                    new TransportConfig().withRecorder(recorder));
+            recording.login("user", "password");
+            recording.get_game(1).swipe(0, 0);
+        } finally {
+            server.stop();
+        }
+
+        TrafficReplayer replayer = TrafficReplayer.open(log, false);
+        MinesweeperClient client = new MinesweeperClient(server.getHostname(), server.getPort(),
+                new TransportConfig().withReplayer(replayer));
+        client.login("user", "password");
+        Game game = client.get_game(1);
+        return () -> {
+            replayer.rewind();
+            return game.swipe(0, 0);
+        };
+    }
+}
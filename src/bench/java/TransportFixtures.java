@@ -0,0 +1,40 @@
+import bench.Fixture;
+import bench.TransportBenchmark;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prepares the concurrent game requests measured by {@code bench.TransportBenchmark}
+ */
+public class TransportFixtures implements TransportBenchmark.Fixtures {
+
+    @Override
+    public Fixture getGames(String version, int concurrency) throws Exception {
+        JettyStubServer server = new JettyStubServer(BenchmarkBoards.gameJson(20));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        TransportConfig transport = new TransportConfig()
+                .withVersion(HttpClient.Version.valueOf(version))
+                .withExecutor(executor);
+        MinesweeperClient client = new MinesweeperClient(server.getHostname(), server.getPort(), transport);
+        client.login("user", "password");
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[concurrency];
+        return new Fixture() {
+            @Override
+            public Object run() {
+                // Distinct games, so no request is coalesced with another and each one is sent
+                for (int i = 0; i < requests.length; i++)
+                    requests[i] = client.get_game_async(i + 1);
+                return CompletableFuture.allOf(requests).join();
+            }
+
+            @Override
+            public void close() {
+                server.stop();
+                executor.shutdownNow();
+            }
+        };
+    }
+}
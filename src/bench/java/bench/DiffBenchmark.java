@@ -0,0 +1,40 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the cells changed by a move with BoardDiff at several board sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiffBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    private Fixture diff;
+
+    /**
+     * The operations measured here, prepared next to the client classes
+     */
+    public interface Fixtures {
+        Fixture diff(int size) throws Exception;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        Fixtures fixtures = FixtureLoader.load(Fixtures.class);
+        diff = fixtures.diff(size);
+    }
+
+    @Benchmark
+    public Object diff() throws Exception {
+        return diff.run();
+    }
+}
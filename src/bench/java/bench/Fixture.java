@@ -0,0 +1,21 @@
+package bench;
+
+/**
+ * A prepared operation measured by a benchmark.
+ * <p>
+ * The client classes live in the unnamed package, which benchmark classes cannot import,
+ * so each operation is prepared on that side by the fixtures of its benchmark and called through this interface.
+ */
+public interface Fixture extends AutoCloseable {
+
+    /**
+     * Runs the operation once
+     *
+     * @return the result of the operation, to be consumed by the benchmark
+     */
+    Object run() throws Exception;
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,30 @@
+package bench;
+
+/**
+ * Finds the fixtures of a benchmark.
+ * <p>
+ * JMH only runs benchmarks of a named package, which cannot refer to the client classes of the unnamed package.
+ * Each benchmark therefore declares its operations in a nested {@code Fixtures} interface, implemented next to the
+ * client classes by the class named after the benchmark with "Fixtures" in place of "Benchmark". The compiler checks
+ * both sides, and that class is the only one looked up by name.
+ */
+final class FixtureLoader {
+
+    private FixtureLoader() {
+    }
+
+    /**
+     * Returns the implementation of the fixtures of a benchmark
+     *
+     * @param fixtures the nested fixtures interface of the benchmark
+     * @return the fixtures
+     */
+    static <T> T load(Class<T> fixtures) {
+        String name = fixtures.getEnclosingClass().getSimpleName().replace("Benchmark", "Fixtures");
+        try {
+            return fixtures.cast(Class.forName(name).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalStateException(name + " implementing " + fixtures.getName() + " is missing from the benchmark build", e);
+        }
+    }
+}
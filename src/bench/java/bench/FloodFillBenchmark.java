@@ -0,0 +1,40 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the embedded server revealing a whole board from one swipe at several board sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloodFillBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    private Fixture floodFill;
+
+    /**
+     * The operations measured here, prepared next to the client classes
+     */
+    public interface Fixtures {
+        Fixture floodFill(int size) throws Exception;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        Fixtures fixtures = FixtureLoader.load(Fixtures.class);
+        floodFill = fixtures.floodFill(size);
+    }
+
+    @Benchmark
+    public Object floodFill() throws Exception {
+        return floodFill.run();
+    }
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a game state response at several board sizes, and reading only its status with the board
+ * parsed at once or lazily
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Fixture deserialize;
+    private Fixture deserializeWithNewMapper;
+    private Fixture status;
+    private Fixture statusLazy;
+
+    /**
+     * The operations measured here, prepared next to the client classes
+     */
+    public interface Fixtures {
+        Fixture deserialize(int size) throws Exception;
+
+        Fixture deserializeWithNewMapper(int size) throws Exception;
+
+        Fixture status(int size) throws Exception;
+
+        Fixture statusLazy(int size) throws Exception;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        Fixtures fixtures = FixtureLoader.load(Fixtures.class);
+        deserialize = fixtures.deserialize(size);
+        deserializeWithNewMapper = fixtures.deserializeWithNewMapper(size);
+        status = fixtures.status(size);
+        statusLazy = fixtures.statusLazy(size);
+    }
+
+    @Benchmark
+    public Object deserialize() throws Exception {
+        return deserialize.run();
+    }
+
+    @Benchmark
+    public Object deserializeWithNewMapper() throws Exception {
+        return deserializeWithNewMapper.run();
+    }
+
+    @Benchmark
+    public Object status() throws Exception {
+        return status.run();
+    }
+
+    @Benchmark
+    public Object statusLazy() throws Exception {
+        return statusLazy.run();
+    }
+}
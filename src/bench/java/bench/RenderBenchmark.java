@@ -0,0 +1,49 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering a board to text with Game.toString and streaming it with BoardRenderer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Fixture render;
+    private Fixture renderStream;
+
+    /**
+     * The operations measured here, prepared next to the client classes
+     */
+    public interface Fixtures {
+        Fixture render(int size) throws Exception;
+
+        Fixture renderStream(int size) throws Exception;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        Fixtures fixtures = FixtureLoader.load(Fixtures.class);
+        render = fixtures.render(size);
+        renderStream = fixtures.renderStream(size);
+    }
+
+    @Benchmark
+    public Object render() throws Exception {
+        return render.run();
+    }
+
+    @Benchmark
+    public Object renderStream() throws Exception {
+        return renderStream.run();
+    }
+}
@@ -0,0 +1,55 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the requests with a JSON body in HTTPClient
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBodyBenchmark {
+
+    private Fixture login;
+    private Fixture newGame;
+    private Fixture doAction;
+
+    /**
+     * The operations measured here, prepared next to the client classes
+     */
+    public interface Fixtures {
+        Fixture loginRequest() throws Exception;
+
+        Fixture newGameRequest() throws Exception;
+
+        Fixture doActionRequest() throws Exception;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        Fixtures fixtures = FixtureLoader.load(Fixtures.class);
+        login = fixtures.loginRequest();
+        newGame = fixtures.newGameRequest();
+        doAction = fixtures.doActionRequest();
+    }
+
+    @Benchmark
+    public Object login() throws Exception {
+        return login.run();
+    }
+
+    @Benchmark
+    public Object newGame() throws Exception {
+        return newGame.run();
+    }
+
+    @Benchmark
+    public Object doAction() throws Exception {
+        return doAction.run();
+    }
+}
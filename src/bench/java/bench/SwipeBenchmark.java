@@ -0,0 +1,56 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full Game.swipe, the action request and the game refresh, against a local stub server
+ * and replayed from a traffic log, which leaves out the network
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwipeBenchmark {
+
+    @Param({"10", "100"})
+    public int size;
+
+    private Fixture swipe;
+    private Fixture replayedSwipe;
+
+    /**
+     * The operations measured here, prepared next to the client classes
+     */
+    public interface Fixtures {
+        Fixture swipe(int size) throws Exception;
+
+        Fixture replayedSwipe(int size) throws Exception;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        Fixtures fixtures = FixtureLoader.load(Fixtures.class);
+        swipe = fixtures.swipe(size);
+        replayedSwipe = fixtures.replayedSwipe(size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        swipe.close();
+        replayedSwipe.close();
+    }
+
+    @Benchmark
+    public Object swipe() throws Exception {
+        return swipe.run();
+    }
+
+    @Benchmark
+    public Object replayedSwipe() throws Exception {
+        return replayedSwipe.run();
+    }
+}
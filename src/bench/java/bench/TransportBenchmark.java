@@ -0,0 +1,65 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of concurrent game requests over HTTP/1.1 and HTTP/2 against a local server.
+ * <p>
+ * Each operation issues the given amount of concurrent requests and waits for all of them, so the
+ * "requests" secondary result is the request throughput. HTTP/1.1 opens a connection per concurrent
+ * request, HTTP/2 multiplexes them over one.
+ * <p>
+ * The requests must bypass the single-flight coalescing of {@code MinesweeperClient}, or concurrent reads of one
+ * game would share a request and the count would overstate the throughput. Each of them asks for a different game.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+    @Param({"HTTP_1_1", "HTTP_2"})
+    public String version;
+
+    @Param({"1", "16", "64"})
+    public int concurrency;
+
+    private Fixture getGames;
+
+    /**
+     * Counts the requests completed by each thread
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Requests {
+        public long requests;
+    }
+
+    /**
+     * The operations measured here, prepared next to the client classes
+     */
+    public interface Fixtures {
+        Fixture getGames(String version, int concurrency) throws Exception;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        getGames = FixtureLoader.load(Fixtures.class).getGames(version, concurrency);
+    }
+
+    @TearDown
+    public void tearDown() {
+        getGames.close();
+    }
+
+    @Benchmark
+    public Object getGames(Requests counter) throws Exception {
+        Object result = getGames.run();
+        counter.requests += concurrency;
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * An action to perform on a cell of a game
+ */
+public class Action {
+
+    public static final String MARK = "?";
+    public static final String FLAG = "F";
+    public static final String SWIPE = " ";
+
+    private final int row;
+    private final int col;
+    private final String status;
+
+    /**
+     * Creates a new action
+     *
+     * @param row    the cell row
+     * @param col    the cell column
+     * @param status the desired status for the cell, it can be:
+     *               - "?" for mark
+     *               - "F" for flag
+     *               - " " for swipe
+     */
+    public Action(int row, int col, String status) {
+        this.row = row;
+        this.col = col;
+        this.status = status;
+    }
+
+    public static Action mark(int row, int col) {
+        return new Action(row, col, MARK);
+    }
+
+    public static Action flag(int row, int col) {
+        return new Action(row, col, FLAG);
+    }
+
+    public static Action swipe(int row, int col) {
+        return new Action(row, col, SWIPE);
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "\"" + status + "\"@" + row + "," + col;
+    }
+}
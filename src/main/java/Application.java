@@ -1,16 +1,188 @@
 import org.apache.commons.cli.*;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.List;
 
 public class Application {
 
     public static void main(String[] args) {
+        Options options = options();
 
+        CommandLineParser parser = new DefaultParser();
+        try {
+            CommandLine cmd = parser.parse(options, args);
+            String hostname = cmd.getOptionValue("h");
+            int port = Integer.parseInt(cmd.getOptionValue("p"));
+            String username = cmd.getOptionValue("u");
+
+            // Let a running daemon serve the command, skipping the login
+            // Exports and scripts use files relative to this process or its standard streams, and watch events
+            // stream as they happen, none of which fit the daemon's buffered replies
+            if (!cmd.hasOption("daemon") && !cmd.hasOption("load") && !cmd.hasOption("record") && !cmd.hasOption("replay")
+                    && !cmd.hasOption("export") && !cmd.hasOption("script") && !cmd.hasOption("watch") && ClientDaemon.forward(hostname, port, username, args, System.out))
+                return;
+
+            // Closed however the command ends, so the log of a failed session is complete and a write failure is reported
+            try (TrafficRecorder recorder = cmd.hasOption("record") ? new TrafficRecorder(Paths.get(cmd.getOptionValue("record"))) : null) {
+                TransportConfig transport = new TransportConfig();
+                if (recorder != null)
+                    transport = transport.withRecorder(recorder);
+                if (cmd.hasOption("replay"))
+                    transport = transport.withReplayer(TrafficReplayer.open(Paths.get(cmd.getOptionValue("replay")), cmd.hasOption("paced")));
+                // Script results never show a board
+                if (cmd.hasOption("script"))
+                    transport = transport.withLazyBoards(true);
+
+                MinesweeperClient client = new MinesweeperClient(hostname, port, transport);
+                // Recorded sessions log in, so their replays do not depend on a stored token
+                if (!cmd.hasOption("record") && !cmd.hasOption("replay"))
+                    client.setSessionStore(new SessionStore());
+                boolean loginSuccess = client.login(username, cmd.getOptionValue("pw"));
+
+                if (loginSuccess) {
+                    if (cmd.hasOption("daemon")) {
+                        // Serve commands until the process is stopped
+                        ClientMetrics.shared().registerMBeans();
+                        ClientDaemon daemon = ClientDaemon.start(hostname, port, username, client);
+                        System.out.println("Daemon listening on port " + daemon.getPort());
+                        daemon.await();
+                    } else {
+                        execute(cmd, client, System.out);
+                    }
+                } else {
+                    System.out.println("Invalid username or password");
+                }
+            }
+        } catch (ParseException e) {
+            HelpFormatter formatter = new HelpFormatter();
+            System.err.println("Parsing failed.  Reason: " + e.getMessage());
+            formatter.printHelp("minesweeper-client", options);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs a parsed command with a logged-in client
+     *
+     * @param cmd    the parsed command line
+     * @param client the logged-in client
+     * @param out    where to print the results
+     */
+    static void execute(CommandLine cmd, MinesweeperClient client, PrintStream out) {
+        if (cmd.hasOption("l")) {
+            // List games
+            out.println(Arrays.toString(client.list_games()));
+        } else if (cmd.hasOption("n")) {
+            // New games
+            String[] new_args = cmd.getOptionValue("n").split(",");
+            Game game = client.new_game(Integer.parseInt(new_args[0]), Integer.parseInt(new_args[1]), Integer.parseInt(new_args[2]));
+            dumpGame(game, cmd, out);
+        } else if (cmd.hasOption("g")) {
+            // Get game
+            int gameId = Integer.parseInt(cmd.getOptionValue("g"));
+            Game game = client.get_game(gameId);
+            dumpGame(game, cmd, out);
+        } else if (cmd.hasOption("m")) {
+            // Mark cell of game
+            String[] action_args = cmd.getOptionValue("m").split(",");
+            int gameId = Integer.parseInt(action_args[0]);
+            int row = Integer.parseInt(action_args[1]);
+            int col = Integer.parseInt(action_args[2]);
+            Game game = client.get_game(gameId);
+            watchChanges(game, cmd, out);
+            game.mark(row, col);
+            dumpGame(game, cmd, out);
+        } else if (cmd.hasOption("f")) {
+            // Flag cell of game
+            String[] action_args = cmd.getOptionValue("f").split(",");
+            int gameId = Integer.parseInt(action_args[0]);
+            int row = Integer.parseInt(action_args[1]);
+            int col = Integer.parseInt(action_args[2]);
+            Game game = client.get_game(gameId);
+            watchChanges(game, cmd, out);
+            game.flag(row, col);
+            dumpGame(game, cmd, out);
+        } else if (cmd.hasOption("s")) {
+            // Swipe cell of game
+            String[] action_args = cmd.getOptionValue("s").split(",");
+            int gameId = Integer.parseInt(action_args[0]);
+            int row = Integer.parseInt(action_args[1]);
+            int col = Integer.parseInt(action_args[2]);
+            Game game = client.get_game(gameId);
+            watchChanges(game, cmd, out);
+            game.swipe(row, col);
+            dumpGame(game, cmd, out);
+        } else if (cmd.hasOption("solve")) {
+            // Solve game
+            int gameId = Integer.parseInt(cmd.getOptionValue("solve"));
+            Game game = client.get_game(gameId);
+            watchChanges(game, cmd, out);
+            solveGame(game, cmd.hasOption("guess"), out);
+            dumpGame(game, cmd, out);
+        } else if (cmd.hasOption("export")) {
+            // Export all games
+            exportGames(client, cmd, out);
+        } else if (cmd.hasOption("script")) {
+            // Run a script of commands
+            runScript(client, cmd, out);
+        } else if (cmd.hasOption("watch")) {
+            // Watch games until they end
+            watchGames(client, cmd, out);
+        } else if (cmd.hasOption("load")) {
+            // Load test
+            ClientMetrics.shared().registerMBeans();
+            String[] load_args = cmd.getOptionValue("load").split(",");
+            LoadTest loadTest = new LoadTest(cmd.getOptionValue("h"), Integer.parseInt(cmd.getOptionValue("p")),
+                    cmd.getOptionValue("u"), cmd.getOptionValue("pw"),
+                    Integer.parseInt(load_args[0]), Integer.parseInt(load_args[1]), Integer.parseInt(load_args[2]),
+                    Integer.parseInt(load_args[3]), Long.parseLong(load_args[4]), Long.parseLong(load_args[5]));
+            loadTest.run();
+            out.print(loadTest.toText());
+            out.println(loadTest.toJson());
+        }
+
+        if (cmd.hasOption("stats"))
+            out.print(ClientMetrics.shared().toText());
+    }
+
+    /**
+     * Returns the command line options of the application
+     *
+     * @return the options
+     */
+    static Options options() {
         Options options = new Options();
         options.addRequiredOption("h", "host", true, "Hostname of Minesweeper API server");
         options.addRequiredOption("p", "port", true, "Port of Minesweeper API server");
         options.addRequiredOption("u", "username", true, "User name");
         options.addRequiredOption("pw", "password", true, "Password");
+        options.addOption(Option.builder().longOpt("guess").desc("With --solve, swipes the safest cell when no certain move is left").build());
+        options.addOption(Option.builder().longOpt("viewport").hasArg().argName("window").desc("Prints only the board cells in <window> = <row,col,rows,cols>").build());
+        options.addOption(Option.builder().longOpt("around").hasArg().argName("radius").desc("Prints only the board cells within <radius> of the last action").build());
+        options.addOption(Option.builder().longOpt("summary").desc("Prints cell counts and a coarse map instead of the board").build());
+        options.addOption(Option.builder().longOpt("changes").desc("After an action, prints only the cells it changed instead of the board").build());
+        options.addOption(Option.builder().longOpt("concurrency").hasArg().argName("n").desc("With --export, --script or --watch, runs up to <n> requests or commands at a time (default 8)").build());
+        options.addOption(Option.builder().longOpt("ordered").desc("With --export, writes the games in ascending id order").build());
+        options.addOption(Option.builder().longOpt("resume").desc("With --export, appends only the games missing from the file").build());
+        options.addOption(Option.builder().longOpt("record").hasArg().argName("file").desc("Records every request and response of the command to <file>").build());
+        options.addOption(Option.builder().longOpt("replay").hasArg().argName("file").desc("Answers requests from a log written by --record instead of the server").build());
+        options.addOption(Option.builder().longOpt("paced").desc("With --replay, serves each response after the time it took when recorded").build());
+        options.addOption(Option.builder().longOpt("rate").hasArg().argName("n").desc("With --watch, polls at most <n> games per second (default 10)").build());
+        options.addOption(Option.builder().longOpt("stats").desc("Prints request statistics of each endpoint after the command").build());
 
         Option new_game = Option.builder("n").longOpt("new").hasArg().argName("size").desc("Creates a new game of <size> = <row, cols, mines>").build();
         Option get_game = Option.builder("g").longOpt("get").hasArg().argName("id").desc("Gets game <id>").build();
@@ -18,6 +190,12 @@ public class Application {
         Option mark = Option.builder("m").longOpt("mark").hasArg().argName("cell").desc("Marks a <cell> = <game_id,row,col>").build();
         Option flag = Option.builder("f").longOpt("flag").hasArg().argName("cell").desc("Flags a <cell> = <game_id,row,col>").build();
         Option swipe = Option.builder("s").longOpt("swipe").hasArg().argName("cell").desc("Swipes a <cell> = <game_id,row,col>").build();
+        Option load = Option.builder().longOpt("load").hasArg().argName("spec").desc("Runs a load test of <spec> = <players,rows,cols,mines,seconds,think_ms>").build();
+        Option export = Option.builder().longOpt("export").hasArg().argName("file").desc("Writes all user games to <file>, or - for the output, one JSON line each").build();
+        Option script = Option.builder().longOpt("script").hasArg().argName("file").desc("Runs the commands in <file>, or - for the input, one per line").build();
+        Option watch = Option.builder().longOpt("watch").hasArg().argName("ids").desc("Prints the changes of games <ids> = <id,id,...> or all until they end").build();
+        Option daemon = Option.builder().longOpt("daemon").desc("Keeps a logged-in client running that serves the other commands").build();
+        Option solve = Option.builder().longOpt("solve").hasArg().argName("id").desc("Plays game <id> until no certain move is left").build();
 
         OptionGroup optionGroup = new OptionGroup();
         optionGroup.setRequired(true);
@@ -27,75 +205,141 @@ public class Application {
         optionGroup.addOption(mark);
         optionGroup.addOption(flag);
         optionGroup.addOption(swipe);
+        optionGroup.addOption(solve);
+        optionGroup.addOption(export);
+        optionGroup.addOption(script);
+        optionGroup.addOption(watch);
+        optionGroup.addOption(load);
+        optionGroup.addOption(daemon);
 
         options.addOptionGroup(optionGroup);
+        return options;
+    }
 
-        CommandLineParser parser = new DefaultParser();
-        try {
-            CommandLine cmd = parser.parse(options, args);
-            String hostname = cmd.getOptionValue("h");
-            int port = Integer.parseInt(cmd.getOptionValue("p"));
-            MinesweeperClient client = new MinesweeperClient(hostname, port);
-            boolean loginSuccess = client.login(cmd.getOptionValue("u"), cmd.getOptionValue("pw"));
-
-            if (loginSuccess) {
-                if (cmd.hasOption("l")) {
-                    // List games
-                    System.out.println(Arrays.toString(client.list_games()));
-                } else if (cmd.hasOption("n")) {
-                    // New games
-                    String[] new_args = cmd.getOptionValue("n").split(",");
-                    Game game = client.new_game(Integer.parseInt(new_args[0]), Integer.parseInt(new_args[1]), Integer.parseInt(new_args[2]));
-                    dumpGame(game);
-                } else if (cmd.hasOption("g")) {
-                    // Get game
-                    int gameId = Integer.parseInt(cmd.getOptionValue("g"));
-                    Game game = client.get_game(gameId);
-                    dumpGame(game);
-                } else if (cmd.hasOption("m")) {
-                    // Mark cell of game
-                    String[] action_args = cmd.getOptionValue("m").split(",");
-                    int gameId = Integer.parseInt(action_args[0]);
-                    int row = Integer.parseInt(action_args[1]);
-                    int col = Integer.parseInt(action_args[2]);
-                    Game game = client.get_game(gameId);
-                    game.mark(row, col);
-                    dumpGame(game);
-                } else if (cmd.hasOption("f")) {
-                    // Flag cell of game
-                    String[] action_args = cmd.getOptionValue("f").split(",");
-                    int gameId = Integer.parseInt(action_args[0]);
-                    int row = Integer.parseInt(action_args[1]);
-                    int col = Integer.parseInt(action_args[2]);
-                    Game game = client.get_game(gameId);
-                    game.flag(row, col);
-                    dumpGame(game);
-                } else if (cmd.hasOption("s")) {
-                    // Swipe cell of game
-                    String[] action_args = cmd.getOptionValue("s").split(",");
-                    int gameId = Integer.parseInt(action_args[0]);
-                    int row = Integer.parseInt(action_args[1]);
-                    int col = Integer.parseInt(action_args[2]);
-                    Game game = client.get_game(gameId);
-                    game.swipe(row, col);
-                    dumpGame(game);
+    private static void solveGame(Game game, boolean guess, PrintStream out) {
+        Solver solver = new Solver();
+        ProbabilityEngine engine = guess ? new ProbabilityEngine() : null;
+        int moves = 0;
+        while (game.get_status().equals("undecided")) {
+            SolverResult result = solver.solve(game.get_board());
+            List<Action> actions;
+            if (!result.isEmpty()) {
+                actions = result.toActions();
+            } else if (engine != null) {
+                Guess safest;
+                try {
+                    safest = engine.guess(game);
+                } catch (IllegalStateException e) {
+                    out.println(e.getMessage());
+                    break;
                 }
+                if (safest == null)
+                    break;
+                out.println("Guessing " + safest);
+                actions = List.of(safest.toAction());
             } else {
-                System.out.println("Invalid username or password");
+                break;
             }
 
-        } catch (ParseException e) {
-            HelpFormatter formatter = new HelpFormatter();
-            System.err.println("Parsing failed.  Reason: " + e.getMessage());
-            formatter.printHelp("minesweeper-client", options);
+            BatchResult batch = game.applyActions(actions);
+            int applied = batch.getSucceeded().size();
+            moves += applied;
+            if (applied == 0)
+                break;
+        }
+        out.println("Solver moves: " + moves);
+    }
+
+    private static void exportGames(MinesweeperClient client, CommandLine cmd, PrintStream out) {
+        GameExporter exporter = new GameExporter(client, Integer.parseInt(cmd.getOptionValue("concurrency", "8")), cmd.hasOption("ordered"));
+        String file = cmd.getOptionValue("export");
+        try {
+            if (file.equals("-")) {
+                // The output only holds games, the totals go to the error stream
+                exporter.export(out);
+                System.err.println("Exported games: " + exporter.getExported() + ", failed: " + exporter.getFailed());
+                return;
+            }
+
+            Path path = Paths.get(file);
+            int[] skip = cmd.hasOption("resume") ? GameExporter.exportedIds(path) : new int[0];
+            try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    cmd.hasOption("resume") ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING))) {
+                exporter.export(fileOut, skip);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.println("Exported games: " + exporter.getExported() + ", failed: " + exporter.getFailed());
+    }
+
+    private static void runScript(MinesweeperClient client, CommandLine cmd, PrintStream out) {
+        ScriptRunner runner = new ScriptRunner(client, Integer.parseInt(cmd.getOptionValue("concurrency", "8")));
+        String file = cmd.getOptionValue("script");
+        try (BufferedReader script = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(file))) {
+            runner.run(script, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        out.println("Commands: " + runner.getCommands() + ", failed: " + runner.getFailed());
     }
 
-    private static void dumpGame(Game game) {
-        System.out.println("Game: " + game.getId());
-        System.out.println("Play time: " + game.elapsed() + " seconds");
-        System.out.println(game.toString());
-        System.out.println("Status: " + game.get_status());
-        System.out.println("Mines count: " + game.get_mines_count());
+    private static void watchGames(MinesweeperClient client, CommandLine cmd, PrintStream out) {
+        String ids = cmd.getOptionValue("watch");
+        int[] gameIds = ids.equals("all")
+                ? Arrays.stream(client.list_games()).mapToInt(Integer::intValue).toArray()
+                : Arrays.stream(ids.split(",")).mapToInt(id -> Integer.parseInt(id.trim())).toArray();
+        // Polls of unchanged games are revalidated instead of downloaded again
+        client.setGameCache(new GameCache(Math.max(1, gameIds.length), 256L << 20, Duration.ZERO));
+        GameWatcher watcher = new GameWatcher(client, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                Double.parseDouble(cmd.getOptionValue("rate", "10")), Integer.parseInt(cmd.getOptionValue("concurrency", "8")));
+        try {
+            watcher.watch(gameIds, out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the board renderer selected by the viewport and summary options
+     */
+    private static BoardRenderer renderer(CommandLine cmd) {
+        if (cmd.hasOption("summary"))
+            return BoardRenderer.summary();
+        if (cmd.hasOption("around"))
+            return BoardRenderer.around(Integer.parseInt(cmd.getOptionValue("around")));
+        if (cmd.hasOption("viewport")) {
+            String[] viewport_args = cmd.getOptionValue("viewport").split(",");
+            return BoardRenderer.window(Integer.parseInt(viewport_args[0]), Integer.parseInt(viewport_args[1]),
+                    Integer.parseInt(viewport_args[2]), Integer.parseInt(viewport_args[3]));
+        }
+        return BoardRenderer.full();
+    }
+
+    /**
+     * With the changes option, prints the cells changed by each action instead of the board
+     */
+    private static void watchChanges(Game game, CommandLine cmd, PrintStream out) {
+        if (cmd.hasOption("changes"))
+            game.addBoardListener((changed, diff) -> {
+                if (!diff.isEmpty())
+                    out.println(diff);
+            });
+    }
+
+    private static void dumpGame(Game game, CommandLine cmd, PrintStream out) {
+        out.println("Game: " + game.getId());
+        out.println("Play time: " + game.elapsed() + " seconds");
+        if (!cmd.hasOption("changes") || game.getLastAction() == null) {
+            try {
+                renderer(cmd).render(game, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        out.println("Status: " + game.get_status());
+        out.println("Mines count: " + game.get_mines_count());
     }
 }
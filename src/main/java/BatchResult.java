@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of applying a batch of actions to a game
+ */
+public class BatchResult {
+
+    private final List<Action> actions;
+    private final boolean[] succeeded;
+    private final int sent;
+
+    BatchResult(List<Action> actions, boolean[] succeeded, int sent) {
+        this.actions = Collections.unmodifiableList(actions);
+        this.succeeded = succeeded;
+        this.sent = sent;
+    }
+
+    /**
+     * Returns the actions of the batch, in the order they were given
+     *
+     * @return the actions
+     */
+    public List<Action> getActions() {
+        return actions;
+    }
+
+    /**
+     * Returns true if the action at the given index of the batch succeeded
+     *
+     * @param index the action index
+     * @return true if the action succeeded, false if it failed or was never sent
+     */
+    public boolean succeeded(int index) {
+        return succeeded[index];
+    }
+
+    /**
+     * Returns the actions that succeeded, in the order they were applied
+     *
+     * @return the succeeded actions
+     */
+    public List<Action> getSucceeded() {
+        List<Action> result = new ArrayList<>();
+        for (int i = 0; i < succeeded.length; i++) {
+            if (succeeded[i])
+                result.add(actions.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the amount of actions sent to the server before the batch stopped
+     *
+     * @return the amount of sent actions
+     */
+    public int getSentCount() {
+        return sent;
+    }
+
+    /**
+     * Returns true if every action of the batch succeeded
+     *
+     * @return true if the whole batch was applied
+     */
+    public boolean isComplete() {
+        return getSucceeded().size() == actions.size();
+    }
+}
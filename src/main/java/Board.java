@@ -0,0 +1,180 @@
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.Arrays;
+
+/**
+ * A compact Minesweeper board.
+ * Each cell is stored as a single byte code in a row-major array instead of a String reference.
+ * <p>
+ * Cell codes:
+ * - 0: cell was cleared (" ")
+ * - 1..8: cell was cleared and has that amount of mines around
+ * - {@link #UNEXPLORED}: unexplored ("#")
+ * - {@link #MARKED}: marked by the user ("?")
+ * - {@link #FLAGGED}: flagged by the user ("F")
+ * - {@link #MINE}: mine was swiped ("*")
+ */
+@JsonDeserialize(using = BoardDeserializer.class)
+@JsonSerialize(using = BoardSerializer.class)
+public class Board {
+
+    public static final byte CLEARED = 0;
+    public static final byte UNEXPLORED = 9;
+    public static final byte MARKED = 10;
+    public static final byte FLAGGED = 11;
+    public static final byte MINE = 12;
+
+    private static final String[] SYMBOLS = {" ", "1", "2", "3", "4", "5", "6", "7", "8", "#", "?", "F", "*"};
+
+    private final int rows;
+    private final int cols;
+    private final byte[] cells;
+
+    /**
+     * Creates a board with all its cells unexplored
+     *
+     * @param rows the number of rows
+     * @param cols the number of columns
+     */
+    public Board(int rows, int cols) {
+        this(rows, cols, new byte[rows * cols]);
+        Arrays.fill(cells, UNEXPLORED);
+    }
+
+    /**
+     * Creates a board backed by the given row-major cell codes
+     *
+     * @param rows  the number of rows
+     * @param cols  the number of columns
+     * @param cells the cell codes, of length rows * cols
+     */
+    public Board(int rows, int cols, byte[] cells) {
+        if (cells.length != rows * cols)
+            throw new IllegalArgumentException("Board of " + rows + "x" + cols + " needs " + rows * cols + " cells");
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = cells;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the code of a cell
+     *
+     * @param row the cell row
+     * @param col the cell column
+     * @return the cell code
+     */
+    public byte get(int row, int col) {
+        return cells[index(row, col)];
+    }
+
+    /**
+     * Sets the code of a cell
+     *
+     * @param row  the cell row
+     * @param col  the cell column
+     * @param code the cell code
+     */
+    public void set(int row, int col, byte code) {
+        cells[index(row, col)] = code;
+    }
+
+    /**
+     * Returns the symbol of a cell as sent by the Minesweeper API
+     *
+     * @param row the cell row
+     * @param col the cell column
+     * @return the cell symbol
+     */
+    public String getSymbol(int row, int col) {
+        return symbol(get(row, col));
+    }
+
+    /**
+     * Returns the row-major cell codes backing this board.
+     * The array is shared, not copied.
+     *
+     * @return the cell codes
+     */
+    byte[] cells() {
+        return cells;
+    }
+
+    /**
+     * Returns an estimate of the memory this board holds, in bytes
+     */
+    long footprint() {
+        return (long) rows * cols;
+    }
+
+    private int index(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols)
+            throw new IndexOutOfBoundsException("Cell " + row + "," + col + " is outside a " + rows + "x" + cols + " board");
+        return row * cols + col;
+    }
+
+    /**
+     * Returns true if the code is a cleared cell, with or without mines around
+     *
+     * @param code the cell code
+     * @return true if the cell was cleared
+     */
+    public static boolean isCleared(byte code) {
+        return code >= CLEARED && code <= 8;
+    }
+
+    /**
+     * Returns the API symbol of a cell code
+     *
+     * @param code the cell code
+     * @return the cell symbol
+     */
+    public static String symbol(byte code) {
+        return SYMBOLS[code];
+    }
+
+    /**
+     * Returns the cell code of an API symbol
+     *
+     * @param symbol the cell symbol
+     * @return the cell code
+     */
+    public static byte code(String symbol) {
+        if (symbol.length() != 1)
+            throw new IllegalArgumentException("Unknown cell symbol: \"" + symbol + "\"");
+        return code(symbol.charAt(0));
+    }
+
+    /**
+     * Returns the cell code of a single character API symbol
+     *
+     * @param symbol the cell symbol
+     * @return the cell code
+     */
+    public static byte code(char symbol) {
+        switch (symbol) {
+            case ' ':
+                return CLEARED;
+            case '#':
+                return UNEXPLORED;
+            case '?':
+                return MARKED;
+            case 'F':
+                return FLAGGED;
+            case '*':
+                return MINE;
+            default:
+                if (symbol >= '1' && symbol <= '8')
+                    return (byte) (symbol - '0');
+                throw new IllegalArgumentException("Unknown cell symbol: \"" + symbol + "\"");
+        }
+    }
+}
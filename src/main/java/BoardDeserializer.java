@@ -0,0 +1,95 @@
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streams a JSON board (an array of rows of cell symbols) straight into a {@link Board}
+ * without building intermediate String arrays or a JSON tree.
+ * <p>
+ * When the {@link #LAZY} attribute is set and the JSON is read from a byte array, the board is skipped instead
+ * and returned as a {@link LazyBoard} over its part of the array, parsed on first access.
+ */
+public class BoardDeserializer extends StdDeserializer<Board> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reader attribute that defers parsing boards until they are accessed
+     */
+    public static final String LAZY = "BoardDeserializer.lazy";
+
+    public BoardDeserializer() {
+        super(Board.class);
+    }
+
+    @Override
+    public Board deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY)
+            return (Board) ctxt.handleUnexpectedToken(Board.class, p);
+
+        if (ctxt.getAttribute(LAZY) != null) {
+            JsonLocation start = p.getTokenLocation();
+            if (start.getSourceRef() instanceof byte[]) {
+                p.skipChildren();
+                int offset = (int) start.getByteOffset();
+                int end = (int) p.getCurrentLocation().getByteOffset();
+                return new LazyBoard((byte[]) start.getSourceRef(), offset, end - offset);
+            }
+        }
+
+        byte[] cells = new byte[256];
+        int size = 0;
+        int rows = 0;
+        int cols = -1;
+
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.currentToken() != JsonToken.START_ARRAY)
+                return (Board) ctxt.handleUnexpectedToken(Board.class, p);
+
+            int rowStart = size;
+            JsonToken t;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (size == cells.length)
+                    cells = Arrays.copyOf(cells, cells.length * 2);
+                cells[size++] = readCell(p, t, ctxt);
+            }
+
+            int rowLength = size - rowStart;
+            if (cols == -1) {
+                cols = rowLength;
+            } else if (rowLength != cols) {
+                ctxt.reportInputMismatch(Board.class, "Board row %d has %d cells, expected %d", rows, rowLength, cols);
+            }
+            rows++;
+        }
+
+        if (cols == -1)
+            cols = 0;
+        return new Board(rows, cols, size == cells.length ? cells : Arrays.copyOf(cells, size));
+    }
+
+    private static byte readCell(JsonParser p, JsonToken t, DeserializationContext ctxt) throws IOException {
+        if (t == JsonToken.VALUE_STRING) {
+            if (p.getTextLength() == 1) {
+                char c = p.getTextCharacters()[p.getTextOffset()];
+                try {
+                    return Board.code(c);
+                } catch (IllegalArgumentException e) {
+                    ctxt.reportInputMismatch(Board.class, e.getMessage());
+                }
+            }
+            ctxt.reportInputMismatch(Board.class, "Unknown cell symbol: \"%s\"", p.getText());
+        } else if (t == JsonToken.VALUE_NUMBER_INT) {
+            int count = p.getIntValue();
+            if (count >= 0 && count <= 8)
+                return (byte) count;
+            ctxt.reportInputMismatch(Board.class, "Invalid mine count: %d", count);
+        }
+        return (Byte) ctxt.handleUnexpectedToken(Byte.class, p);
+    }
+}
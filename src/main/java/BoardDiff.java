@@ -0,0 +1,158 @@
+import java.util.Arrays;
+
+/**
+ * The cells that changed between two boards of a game, found in a single pass.
+ * <p>
+ * Equal stretches of cells are skipped with {@link Arrays#mismatch(byte[], int, int, byte[], int, int)},
+ * which the JVM compares a machine word or vector at a time, so a move that changes a few cells of a large
+ * board costs little more than a memory scan. Changes are listed in row-major order.
+ */
+public class BoardDiff {
+
+    private static final int[] NO_CELLS = new int[0];
+    private static final byte[] NO_CODES = new byte[0];
+
+    private final int cols;
+    private final boolean resized;
+    private final int size;
+    private final int[] cells;
+    private final byte[] before;
+    private final byte[] after;
+
+    private BoardDiff(int cols, boolean resized, int size, int[] cells, byte[] before, byte[] after) {
+        this.cols = cols;
+        this.resized = resized;
+        this.size = size;
+        this.cells = cells;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Returns the cells that changed from one board to the next
+     *
+     * @param previous the previous board
+     * @param next     the next board
+     * @return the changes
+     */
+    public static BoardDiff between(Board previous, Board next) {
+        if (previous.getRows() != next.getRows() || previous.getCols() != next.getCols())
+            return new BoardDiff(next.getCols(), true, 0, NO_CELLS, NO_CODES, NO_CODES);
+
+        byte[] a = previous.cells();
+        byte[] b = next.cells();
+        int length = a.length;
+        int[] cells = NO_CELLS;
+        byte[] before = NO_CODES;
+        byte[] after = NO_CODES;
+        int size = 0;
+        int from = 0;
+        while (from < length) {
+            int mismatch = Arrays.mismatch(a, from, length, b, from, length);
+            if (mismatch < 0)
+                break;
+            int cell = from + mismatch;
+            if (size == cells.length) {
+                int capacity = Math.max(16, size * 2);
+                cells = Arrays.copyOf(cells, capacity);
+                before = Arrays.copyOf(before, capacity);
+                after = Arrays.copyOf(after, capacity);
+            }
+            cells[size] = cell;
+            before[size] = a[cell];
+            after[size] = b[cell];
+            size++;
+            from = cell + 1;
+        }
+        return new BoardDiff(next.getCols(), false, size, cells, before, after);
+    }
+
+    /**
+     * Returns true if the boards have different dimensions, in which case no cells are listed
+     *
+     * @return true if the board was resized
+     */
+    public boolean isResized() {
+        return resized;
+    }
+
+    /**
+     * Returns true if no cell changed
+     *
+     * @return true if the boards are equal
+     */
+    public boolean isEmpty() {
+        return !resized && size == 0;
+    }
+
+    /**
+     * Returns the amount of changed cells
+     *
+     * @return the count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the row of a changed cell
+     *
+     * @param i the index of the change, from 0 to {@link #size()}
+     * @return the row
+     */
+    public int getRow(int i) {
+        return cell(i) / cols;
+    }
+
+    /**
+     * Returns the column of a changed cell
+     *
+     * @param i the index of the change, from 0 to {@link #size()}
+     * @return the column
+     */
+    public int getCol(int i) {
+        return cell(i) % cols;
+    }
+
+    /**
+     * Returns the code of a changed cell on the previous board
+     *
+     * @param i the index of the change, from 0 to {@link #size()}
+     * @return the cell code, as described in {@link Board}
+     */
+    public byte getBefore(int i) {
+        cell(i);
+        return before[i];
+    }
+
+    /**
+     * Returns the code of a changed cell on the next board
+     *
+     * @param i the index of the change, from 0 to {@link #size()}
+     * @return the cell code, as described in {@link Board}
+     */
+    public byte getAfter(int i) {
+        cell(i);
+        return after[i];
+    }
+
+    private int cell(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Change " + i + " of " + size);
+        return cells[i];
+    }
+
+    @Override
+    public String toString() {
+        if (resized)
+            return "Board resized";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append(System.lineSeparator());
+            sb.append(getRow(i)).append(',').append(getCol(i)).append(": \"")
+                    .append(Board.symbol(before[i])).append("\" -> \"").append(Board.symbol(after[i])).append('"');
+        }
+        return sb.toString();
+    }
+}
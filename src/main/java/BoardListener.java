@@ -0,0 +1,13 @@
+/**
+ * Notified when the board of a {@link Game} changes after an action
+ */
+public interface BoardListener {
+
+    /**
+     * Called after the game state was replaced, on the thread that received the new state
+     *
+     * @param game the game
+     * @param diff the cells that changed
+     */
+    void boardChanged(Game game, BoardDiff diff);
+}
@@ -0,0 +1,223 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a board as text straight to an output stream, without building Strings.
+ * <p>
+ * The full board is written as {@link Game#toString()} does, one "| a | b |" line per row. A viewport
+ * limits the output to a window of rows and columns, either fixed or centred on the last action of the game.
+ * The summary mode writes the count of cells of each kind and a coarse map where each character stands
+ * for a block of cells: "*" if it holds a swiped mine, "#" if it is all unexplored, " " if it is all
+ * explored and "+" otherwise.
+ */
+public class BoardRenderer {
+
+    private static final byte[] SYMBOLS = " 12345678#?F*".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int SUMMARY_WIDTH = 80;
+    private static final int SUMMARY_HEIGHT = 40;
+
+    private enum Mode {FULL, WINDOW, AROUND, SUMMARY}
+
+    private final Mode mode;
+    private final int row;
+    private final int col;
+    private final int rows;
+    private final int cols;
+
+    private BoardRenderer(Mode mode, int row, int col, int rows, int cols) {
+        this.mode = mode;
+        this.row = row;
+        this.col = col;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Returns a renderer of the full board
+     *
+     * @return the renderer
+     */
+    public static BoardRenderer full() {
+        return new BoardRenderer(Mode.FULL, 0, 0, 0, 0);
+    }
+
+    /**
+     * Returns a renderer of a window of the board, clipped to the board bounds
+     *
+     * @param row  the first row of the window
+     * @param col  the first column of the window
+     * @param rows the number of rows of the window
+     * @param cols the number of columns of the window
+     * @return the renderer
+     */
+    public static BoardRenderer window(int row, int col, int rows, int cols) {
+        if (row < 0 || col < 0 || rows <= 0 || cols <= 0)
+            throw new IllegalArgumentException("Invalid viewport");
+        return new BoardRenderer(Mode.WINDOW, row, col, rows, cols);
+    }
+
+    /**
+     * Returns a renderer of the cells within the given distance of the last action of the game,
+     * or of the board centre if there was none. Near an edge of the board the window is shifted to stay within it.
+     *
+     * @param radius the distance in rows and columns
+     * @return the renderer
+     */
+    public static BoardRenderer around(int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("Invalid viewport radius");
+        return new BoardRenderer(Mode.AROUND, 0, 0, 2 * radius + 1, 2 * radius + 1);
+    }
+
+    /**
+     * Returns a renderer of the cell counts and a coarse map of the board
+     *
+     * @return the renderer
+     */
+    public static BoardRenderer summary() {
+        return new BoardRenderer(Mode.SUMMARY, 0, 0, 0, 0);
+    }
+
+    /**
+     * Writes the board of a game, flushing but not closing the stream
+     *
+     * @param game the game
+     * @param out  where to write the board
+     * @throws IOException if the stream fails
+     */
+    public void render(Game game, OutputStream out) throws IOException {
+        Action last = game.getLastAction();
+        Board board = game.get_board();
+        if (last != null)
+            render(board, last.getRow(), last.getCol(), out);
+        else
+            render(board, board.getRows() / 2, board.getCols() / 2, out);
+    }
+
+    /**
+     * Writes a board, flushing but not closing the stream
+     *
+     * @param board    the board
+     * @param focusRow the row a window around the last action is centred on
+     * @param focusCol the column a window around the last action is centred on
+     * @param out      where to write the board
+     * @throws IOException if the stream fails
+     */
+    public void render(Board board, int focusRow, int focusCol, OutputStream out) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        switch (mode) {
+            case FULL:
+                writeWindow(board, 0, 0, board.getRows(), board.getCols(), buffered);
+                break;
+            case WINDOW:
+                writeWindow(board, row, col, rows, cols, buffered);
+                break;
+            case AROUND:
+                // Shifted to stay within the board, so a window near an edge keeps its size
+                int radius = rows / 2;
+                int fromRow = Math.max(0, Math.min(focusRow - radius, board.getRows() - rows));
+                int fromCol = Math.max(0, Math.min(focusCol - radius, board.getCols() - cols));
+                writeWindow(board, fromRow, fromCol, rows, cols, buffered);
+                break;
+            case SUMMARY:
+                writeSummary(board, buffered);
+                break;
+        }
+        buffered.flush();
+    }
+
+    private static void writeWindow(Board board, int fromRow, int fromCol, int rows, int cols, OutputStream out) throws IOException {
+        int toRow = (int) Math.min(board.getRows(), (long) fromRow + rows);
+        int toCol = (int) Math.min(board.getCols(), (long) fromCol + cols);
+        if (fromRow >= toRow || fromCol >= toCol) {
+            writeAscii("Viewport outside the " + board.getRows() + "x" + board.getCols() + " board", out);
+            out.write(LINE_SEPARATOR);
+            return;
+        }
+        if (fromRow > 0 || fromCol > 0 || toRow < board.getRows() || toCol < board.getCols()) {
+            writeAscii("Rows " + fromRow + "-" + (toRow - 1) + " of " + board.getRows()
+                    + ", columns " + fromCol + "-" + (toCol - 1) + " of " + board.getCols(), out);
+            out.write(LINE_SEPARATOR);
+        }
+
+        byte[] cells = board.cells();
+        byte[] line = new byte[1 + 4 * (toCol - fromCol)];
+        line[0] = '|';
+        for (int i = 1; i < line.length; i += 4) {
+            line[i] = ' ';
+            line[i + 2] = ' ';
+            line[i + 3] = '|';
+        }
+        for (int r = fromRow; r < toRow; r++) {
+            int offset = r * board.getCols();
+            for (int c = fromCol, i = 2; c < toCol; c++, i += 4)
+                line[i] = SYMBOLS[cells[offset + c]];
+            out.write(line);
+            out.write(LINE_SEPARATOR);
+        }
+    }
+
+    private static void writeSummary(Board board, OutputStream out) throws IOException {
+        int boardRows = board.getRows();
+        int boardCols = board.getCols();
+        byte[] cells = board.cells();
+
+        // Square blocks small enough for the map to fit the summary width and height
+        int block = Math.max(1, Math.max(ceilDiv(boardRows, SUMMARY_HEIGHT), ceilDiv(boardCols, SUMMARY_WIDTH)));
+        int blockCols = ceilDiv(boardCols, block);
+        int[] unexplored = new int[blockCols];
+        int[] total = new int[blockCols];
+        boolean[] mine = new boolean[blockCols];
+        long[] counts = new long[SYMBOLS.length];
+        byte[] line = new byte[blockCols];
+
+        StringBuilder map = new StringBuilder();
+        for (int r = 0; r < boardRows; r++) {
+            int offset = r * boardCols;
+            for (int c = 0; c < boardCols; c++) {
+                byte code = cells[offset + c];
+                counts[code]++;
+                int b = c / block;
+                total[b]++;
+                if (code == Board.UNEXPLORED)
+                    unexplored[b]++;
+                else if (code == Board.MINE)
+                    mine[b] = true;
+            }
+            if ((r + 1) % block == 0 || r == boardRows - 1) {
+                for (int b = 0; b < blockCols; b++) {
+                    line[b] = mine[b] ? (byte) '*'
+                            : unexplored[b] == total[b] ? (byte) '#'
+                            : unexplored[b] == 0 ? (byte) ' ' : (byte) '+';
+                    unexplored[b] = 0;
+                    total[b] = 0;
+                    mine[b] = false;
+                }
+                map.append('|').append(new String(line, StandardCharsets.US_ASCII)).append('|').append(System.lineSeparator());
+            }
+        }
+
+        long cleared = 0;
+        for (int code = Board.CLEARED; code < Board.UNEXPLORED; code++)
+            cleared += counts[code];
+        writeAscii("Board " + boardRows + "x" + boardCols + ": " + counts[Board.UNEXPLORED] + " unexplored, "
+                + cleared + " cleared, " + counts[Board.MARKED] + " marked, " + counts[Board.FLAGGED] + " flagged, "
+                + counts[Board.MINE] + " mines", out);
+        out.write(LINE_SEPARATOR);
+        writeAscii("Map of " + block + "x" + block + " cell blocks", out);
+        out.write(LINE_SEPARATOR);
+        writeAscii(map.toString(), out);
+    }
+
+    private static void writeAscii(String text, OutputStream out) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -0,0 +1,32 @@
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link Board} as the Minesweeper API sends it, an array of rows of cell symbols,
+ * straight from its cell codes.
+ */
+public class BoardSerializer extends StdSerializer<Board> {
+
+    private static final long serialVersionUID = 1L;
+
+    public BoardSerializer() {
+        super(Board.class);
+    }
+
+    @Override
+    public void serialize(Board board, JsonGenerator g, SerializerProvider provider) throws IOException {
+        byte[] cells = board.cells();
+        int cols = board.getCols();
+        g.writeStartArray();
+        for (int row = 0, start = 0; row < board.getRows(); row++, start += cols) {
+            g.writeStartArray();
+            for (int i = start; i < start + cols; i++)
+                g.writeString(Board.symbol(cells[i]));
+            g.writeEndArray();
+        }
+        g.writeEndArray();
+    }
+}
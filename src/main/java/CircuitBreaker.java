@@ -0,0 +1,67 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A circuit breaker for one Minesweeper API server, shared by all the clients of the process that use it
+ * with the same failure threshold and open duration.
+ * <p>
+ * The circuit opens after a run of consecutive failed requests and fails requests fast while open.
+ * Once the open duration elapsed a single probe request is let through: its success closes the circuit
+ * and its failure opens it again.
+ */
+class CircuitBreaker {
+
+    private enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    private CircuitBreaker(int failureThreshold, long openNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Returns the breaker of a server for the thresholds of a policy, so clients with other thresholds,
+     * or none, are never cut off by it
+     */
+    static CircuitBreaker forHost(String hostname, int port, ResiliencePolicy policy) {
+        String key = hostname + ":" + port + "/" + policy.getFailureThreshold() + "/" + policy.getOpenNanos();
+        return BREAKERS.computeIfAbsent(key,
+                host -> new CircuitBreaker(policy.getFailureThreshold(), policy.getOpenNanos()));
+    }
+
+    /**
+     * Returns true if a request may be sent now
+     */
+    synchronized boolean tryAcquire() {
+        if (failureThreshold == 0 || state == State.CLOSED)
+            return true;
+        // A probe that never reports back is replaced by a new one after another open duration
+        if (System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            openedAt = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    synchronized void onFailure() {
+        if (failureThreshold == 0)
+            return;
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Thrown without contacting the Minesweeper API server while its circuit breaker is open
+ */
+public class CircuitOpenException extends RequestFailedException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(Endpoint endpoint, String host) {
+        super(endpoint, "Circuit open for " + host);
+    }
+}
@@ -0,0 +1,234 @@
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A resident process holding one logged-in {@link MinesweeperClient} with warm connections,
+ * serving the commands of short-lived CLI invocations for the same host, port and user.
+ * <p>
+ * The daemon listens on a loopback port. Its port and a random secret are published in a file
+ * readable only by its owner, so only that user can forward commands to it.
+ */
+public class ClientDaemon {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 200;
+
+    private final ServerSocket serverSocket;
+    private final MinesweeperClient client;
+    private final String secret;
+    private final Path file;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "client-daemon");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private ClientDaemon(ServerSocket serverSocket, MinesweeperClient client, String secret, Path file) {
+        this.serverSocket = serverSocket;
+        this.client = client;
+        this.secret = secret;
+        this.file = file;
+    }
+
+    /**
+     * Starts a daemon serving commands with the given logged-in client
+     *
+     * @param hostname the hostname of the Minesweeper API server
+     * @param port     the port of the Minesweeper API server
+     * @param username the user the client is logged in as
+     * @param client   the logged-in client
+     * @return the running daemon
+     * @throws IOException if the daemon cannot listen or publish its port
+     */
+    public static ClientDaemon start(String hostname, int port, String username, MinesweeperClient client) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        StringBuilder secret = new StringBuilder();
+        for (byte b : random)
+            secret.append(String.format("%02x", b));
+
+        Path file = file(hostname, port, username);
+        ClientDaemon daemon = new ClientDaemon(serverSocket, client, secret.toString(), file);
+        daemon.publish();
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+
+        Thread acceptor = new Thread(daemon::accept, "client-daemon-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return daemon;
+    }
+
+    /**
+     * Returns the loopback port the daemon listens on
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Blocks until the daemon is stopped
+     */
+    public void await() {
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the daemon and removes its published port
+     */
+    public void stop() {
+        try {
+            Files.deleteIfExists(file);
+            serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        executor.shutdownNow();
+        stopped.countDown();
+    }
+
+    /**
+     * Forwards a command to the daemon running for the given host, port and user, if any
+     *
+     * @param hostname the hostname of the Minesweeper API server
+     * @param port     the port of the Minesweeper API server
+     * @param username the user name
+     * @param args     the command line arguments
+     * @param out      where to print the command results
+     * @return true if a daemon ran the command, false if there is no daemon to forward to
+     */
+    public static boolean forward(String hostname, int port, String username, String[] args, PrintStream out) {
+        Path file = file(hostname, port, username);
+        if (!Files.isReadable(file))
+            return false;
+
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            int daemonPort = Integer.parseInt(lines.get(0).trim());
+            String secret = lines.get(1).trim();
+
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), daemonPort), CONNECT_TIMEOUT_MILLIS);
+                DataOutputStream request = new DataOutputStream(socket.getOutputStream());
+                request.writeUTF(secret);
+                request.writeInt(args.length);
+                for (String arg : args)
+                    request.writeUTF(arg);
+                request.flush();
+
+                DataInputStream response = new DataInputStream(socket.getInputStream());
+                boolean served = response.readBoolean();
+                byte[] output = new byte[response.readInt()];
+                response.readFully(output);
+                out.write(output);
+                out.flush();
+                return served;
+            }
+        } catch (IOException | RuntimeException e) {
+            // The daemon is gone or its file is damaged, run the command in this process
+            return false;
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed())
+                    e.printStackTrace();
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream request = new DataInputStream(socket.getInputStream());
+            boolean authorized = MessageDigest.isEqual(
+                    secret.getBytes(StandardCharsets.UTF_8),
+                    request.readUTF().getBytes(StandardCharsets.UTF_8));
+            String[] args = new String[Math.max(0, request.readInt())];
+            for (int i = 0; i < args.length; i++)
+                args[i] = request.readUTF();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            boolean served = false;
+            if (authorized) {
+                try (PrintStream out = new PrintStream(output, false, StandardCharsets.UTF_8)) {
+                    CommandLine cmd = new DefaultParser().parse(Application.options(), args);
+                    // The command must give the password the daemon logged in with
+                    if (client.hasPassword(cmd.getOptionValue("pw")))
+                        Application.execute(cmd, client, out);
+                    else
+                        out.println("Invalid username or password");
+                    served = true;
+                } catch (ParseException | RuntimeException e) {
+                    output.reset();
+                    output.write(("Request failed: " + e.getMessage() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                    served = true;
+                }
+            }
+
+            DataOutputStream response = new DataOutputStream(socket.getOutputStream());
+            response.writeBoolean(served);
+            response.writeInt(output.size());
+            output.writeTo(response);
+            response.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the port and secret of the daemon to its file, readable only by the owner
+     */
+    private void publish() throws IOException {
+        Files.createDirectories(file.getParent());
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (posix)
+            Files.setPosixFilePermissions(file.getParent(), PosixFilePermissions.fromString("rwx------"));
+        Path temp = Files.createTempFile(file.getParent(), "daemon", ".tmp");
+        if (posix)
+            Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+        Files.write(temp, (getPort() + "\n" + secret + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path file(String hostname, int port, String username) {
+        String name = "daemon-" + hostname + "-" + port + "-" + username;
+        return Paths.get(System.getProperty("user.home"), ".minesweeper-client", name.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+}
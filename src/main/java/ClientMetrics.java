@@ -0,0 +1,128 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Request statistics of every endpoint of the Minesweeper API, shared by all the clients of the process.
+ * <p>
+ * Each request is also emitted as a {@link RequestEvent} and each parsed response as a
+ * {@link DeserializationEvent} when a flight recording is running. The statistics are published
+ * over JMX only after {@link #registerMBeans()}, which long-running processes call, since loading
+ * the platform MBean server would slow down every short command line invocation.
+ */
+public class ClientMetrics {
+
+    private static final ClientMetrics SHARED = new ClientMetrics();
+
+    private final Map<Endpoint, EndpointStats> endpoints = new EnumMap<>(Endpoint.class);
+    private boolean registered;
+
+    private ClientMetrics() {
+        for (Endpoint endpoint : Endpoint.values())
+            endpoints.put(endpoint, new EndpointStats(endpoint));
+    }
+
+    /**
+     * Returns the statistics shared by all the clients of the process
+     *
+     * @return the shared metrics
+     */
+    public static ClientMetrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the statistics of an endpoint
+     *
+     * @param endpoint the endpoint
+     * @return the endpoint statistics
+     */
+    public EndpointStats get(Endpoint endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * Publishes the statistics of every endpoint as an MBean named
+     * "minesweeper.client:type=Endpoint,name=&lt;endpoint&gt;" in the platform MBean server
+     */
+    public synchronized void registerMBeans() {
+        if (registered)
+            return;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (EndpointStats stats : endpoints.values())
+                server.registerMBean(stats, new ObjectName("minesweeper.client:type=Endpoint,name=" + stats.getEndpoint()));
+            registered = true;
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Clears the statistics of every endpoint
+     */
+    public void reset() {
+        for (EndpointStats stats : endpoints.values())
+            stats.reset();
+    }
+
+    void response(Endpoint endpoint, RequestEvent event, long start, int status, long sent, long received) {
+        event.end();
+        endpoints.get(endpoint).recordResponse(status, System.nanoTime() - start, sent, received);
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint.getLabel();
+            event.status = status;
+            event.bytesSent = sent;
+            event.bytesReceived = received;
+            event.commit();
+        }
+    }
+
+    void failure(Endpoint endpoint, RequestEvent event, long start, long sent) {
+        event.end();
+        endpoints.get(endpoint).recordFailure(System.nanoTime() - start, sent);
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint.getLabel();
+            event.bytesSent = sent;
+            event.commit();
+        }
+    }
+
+    void deserialized(Endpoint endpoint, DeserializationEvent event, long start) {
+        event.end();
+        endpoints.get(endpoint).recordDeserialization(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint.getLabel();
+            event.commit();
+        }
+    }
+
+    void received(Endpoint endpoint, long bytes) {
+        endpoints.get(endpoint).recordReceived(bytes);
+    }
+
+    /**
+     * Returns a human readable report of the statistics
+     *
+     * @return the report
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-8s %8s %8s %7s %6s %6s %9s %9s %9s %9s %10s %10s  %s%n",
+                "endpoint", "requests", "failures", "retries", "hedges", "shared", "p50 ms", "p99 ms", "max ms", "parse ms", "sent B", "recv B", "statuses"));
+        for (EndpointStats stats : endpoints.values()) {
+            if (stats.getRequests() == 0)
+                continue;
+            sb.append(String.format("%-8s %8d %8d %7d %6d %6d %9.2f %9.2f %9.2f %9.3f %10d %10d  %s%n",
+                    stats.getEndpoint(), stats.getRequests(), stats.getFailures(), stats.getRetries(), stats.getHedges(), stats.getCoalesced(),
+                    stats.getNetworkP50Millis(), stats.getNetworkP99Millis(), stats.getNetworkMaxMillis(),
+                    stats.getDeserializationMeanMillis(), stats.getBytesSent(), stats.getBytesReceived(),
+                    stats.getStatusCounts()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,18 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event spanning the parsing of one response body of the Minesweeper API
+ */
+@Name("minesweeper.Deserialization")
+@Label("Minesweeper Deserialization")
+@Category("Minesweeper")
+@Description("Parsing the body of a response of the Minesweeper API")
+class DeserializationEvent extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+}
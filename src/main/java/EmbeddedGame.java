@@ -0,0 +1,262 @@
+import java.util.Arrays;
+import java.util.Date;
+import java.util.SplittableRandom;
+
+/**
+ * A game held by an {@link EmbeddedServer}: the hidden mines and the board the player sees.
+ * <p>
+ * The mines are placed when the game is created from a seed, so the same seed always gives the same game.
+ * Swiping a cell without mines around reveals its whole empty area with a flood fill that keeps its pending
+ * cells in an array instead of the call stack, so it reveals boards of millions of cells at once.
+ * All the methods that read or change the game hold its lock.
+ */
+class EmbeddedGame {
+
+    private final int id;
+    private final int userId;
+    private final int rows;
+    private final int cols;
+    private final int mines;
+    // The cells of the uncovered board: the amount of mines around each cell, or MINE
+    private final byte[] hidden;
+    private final byte[] cells;
+    private final Date startedAt = new Date();
+    private Date endedAt;
+    private String status = "undecided";
+    private int revealed;
+    private long version;
+
+    /**
+     * Creates a game with its mines placed at random from the given seed
+     *
+     * @param id     the game id
+     * @param userId the id of the user playing the game
+     * @param rows   the number of rows
+     * @param cols   the number of columns
+     * @param mines  the number of mines
+     * @param seed   the seed of the mine positions
+     */
+    EmbeddedGame(int id, int userId, int rows, int cols, int mines, long seed) {
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Invalid board size " + rows + "x" + cols);
+        if (mines < 0 || mines > rows * cols)
+            throw new IllegalArgumentException("Invalid amount of mines " + mines + " for a " + rows + "x" + cols + " board");
+        this.id = id;
+        this.userId = userId;
+        this.rows = rows;
+        this.cols = cols;
+        this.mines = mines;
+        this.hidden = uncover(rows, cols, place(rows * cols, mines, new SplittableRandom(seed)));
+        this.cells = new byte[rows * cols];
+        Arrays.fill(cells, Board.UNEXPLORED);
+    }
+
+    /**
+     * Picks cells at random until the amount of mines, or of free cells when mines are the majority, is placed
+     */
+    private static boolean[] place(int size, int mines, SplittableRandom random) {
+        boolean majority = mines > size / 2;
+        int picks = majority ? size - mines : mines;
+        boolean[] picked = new boolean[size];
+        while (picks > 0) {
+            int cell = random.nextInt(size);
+            if (!picked[cell]) {
+                picked[cell] = true;
+                picks--;
+            }
+        }
+        if (majority) {
+            for (int i = 0; i < size; i++)
+                picked[i] = !picked[i];
+        }
+        return picked;
+    }
+
+    /**
+     * Counts the mines around every cell once, so revealing a cell is a single read
+     */
+    private static byte[] uncover(int rows, int cols, boolean[] mined) {
+        byte[] hidden = new byte[rows * cols];
+        for (int cell = 0; cell < hidden.length; cell++) {
+            if (!mined[cell])
+                continue;
+            hidden[cell] = Board.MINE;
+            int row = cell / cols;
+            int col = cell - row * cols;
+            for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+                    if (!mined[r * cols + c])
+                        hidden[r * cols + c]++;
+                }
+            }
+        }
+        return hidden;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    int getUserId() {
+        return userId;
+    }
+
+    /**
+     * Returns a version that changes with every change to the game
+     */
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Applies an action of the player
+     *
+     * @param row    the cell row
+     * @param col    the cell column
+     * @param status the new status of the cell, as in {@link MinesweeperClient#do_action(int, int, int, String)}
+     * @return false if the game is over, the cell is outside the board or the cell was already cleared
+     */
+    synchronized boolean act(int row, int col, String status) {
+        if (!this.status.equals("undecided") || row < 0 || row >= rows || col < 0 || col >= cols)
+            return false;
+
+        int cell = row * cols + col;
+        byte code = cells[cell];
+        if (Board.isCleared(code))
+            return false;
+
+        switch (status) {
+            case Action.MARK:
+                cells[cell] = code == Board.MARKED ? Board.UNEXPLORED : Board.MARKED;
+                break;
+            case Action.FLAG:
+                cells[cell] = code == Board.FLAGGED ? Board.UNEXPLORED : Board.FLAGGED;
+                break;
+            case Action.SWIPE:
+                if (code == Board.FLAGGED)
+                    return false;
+                if (hidden[cell] == Board.MINE)
+                    lose();
+                else
+                    reveal(cell);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown cell status: \"" + status + "\"");
+        }
+        version++;
+        return true;
+    }
+
+    /**
+     * Clears a cell without a mine, and when no mines are around it, every cell of its empty area and their border.
+     * The area is cleared a row span at a time, from the span of the swiped cell to the spans touching it on the
+     * rows above and below, so the cells are visited in memory order and only the spans still to clear are kept.
+     */
+    private void reveal(int start) {
+        if (hidden[start] != 0) {
+            clear(start);
+        } else {
+            int[] spans = new int[64];
+            int size = 0;
+            spans[size++] = start;
+            while (size > 0) {
+                int cell = spans[--size];
+                if (!isCovered(cell))
+                    continue;
+
+                int rowStart = cell - cell % cols;
+                int left = cell;
+                while (left > rowStart && hidden[left - 1] == 0 && isCovered(left - 1))
+                    left--;
+                int right = cell;
+                while (right < rowStart + cols - 1 && hidden[right + 1] == 0 && isCovered(right + 1))
+                    right++;
+                for (int i = left; i <= right; i++)
+                    clear(i);
+
+                // The border of the span: numbers on its row, and numbers and new spans on the rows around it
+                int from = Math.max(rowStart, left - 1);
+                int to = Math.min(rowStart + cols - 1, right + 1);
+                if (isCovered(from))
+                    clear(from);
+                if (isCovered(to))
+                    clear(to);
+                for (int offset = -cols; offset <= cols; offset += 2 * cols) {
+                    if (rowStart + offset < 0 || rowStart + offset >= cells.length)
+                        continue;
+                    boolean inSpan = false;
+                    for (int i = from + offset; i <= to + offset; i++) {
+                        if (!isCovered(i)) {
+                            inSpan = false;
+                        } else if (hidden[i] != 0) {
+                            clear(i);
+                            inSpan = false;
+                        } else if (!inSpan) {
+                            if (size == spans.length)
+                                spans = Arrays.copyOf(spans, size * 2);
+                            spans[size++] = i;
+                            inSpan = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (revealed == rows * cols - mines) {
+            status = "won";
+            endedAt = new Date();
+        }
+    }
+
+    /**
+     * Returns true if a cell is not cleared nor flagged, so revealing an empty area clears it
+     */
+    private boolean isCovered(int cell) {
+        return cells[cell] == Board.UNEXPLORED || cells[cell] == Board.MARKED;
+    }
+
+    /**
+     * Shows the amount of mines around a cell
+     */
+    private void clear(int cell) {
+        cells[cell] = hidden[cell];
+        revealed++;
+    }
+
+    private void lose() {
+        for (int i = 0; i < cells.length; i++) {
+            if (hidden[i] == Board.MINE)
+                cells[i] = Board.MINE;
+        }
+        status = "lost";
+        endedAt = new Date();
+    }
+
+    /**
+     * Covers every cell again, keeping the mines
+     */
+    synchronized void reset() {
+        Arrays.fill(cells, Board.UNEXPLORED);
+        revealed = 0;
+        status = "undecided";
+        endedAt = null;
+        version++;
+    }
+
+    /**
+     * Returns a copy of the game as the player sees it
+     *
+     * @return the game state
+     */
+    synchronized GameState snapshot() {
+        GameState state = new GameState();
+        state.id = id;
+        state.user_id = userId;
+        state.started_at = startedAt;
+        state.ended_at = endedAt;
+        state.game_status = status;
+        state.mines = mines;
+        state.board = new Board(rows, cols, cells.clone());
+        return state;
+    }
+}
@@ -0,0 +1,227 @@
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-process Minesweeper API server, to run the client offline in tests and benchmarks.
+ * <p>
+ * It serves the requests {@link HTTPClient} makes: {@code POST /login}, {@code GET} and {@code POST /games},
+ * {@code GET /games/{id}} and {@code PUT /games/{id}/board}. A user is created by their first login with any
+ * password, and later logins must use the same one. The mines of a game depend only on the seed of the server
+ * and the game id, so a server started with the same seed serves the same games.
+ * Game responses carry an ETag, so conditional requests of a {@link GameCache} are answered with a 304.
+ * <pre>
+ * EmbeddedServer server = EmbeddedServer.start();
+ * MinesweeperClient client = new MinesweeperClient(server.getHostname(), server.getPort());
+ * </pre>
+ */
+public class EmbeddedServer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private static final ObjectWriter GAME_WRITER = MAPPER.writerFor(GameState.class);
+
+    private final HttpServer server;
+    private final long seed;
+    private final SecureRandom tokens = new SecureRandom();
+    private final AtomicInteger nextUserId = new AtomicInteger(1);
+    private final AtomicInteger nextGameId = new AtomicInteger(1);
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final Map<String, Integer> sessions = new ConcurrentHashMap<>();
+    private final Map<Integer, EmbeddedGame> games = new ConcurrentHashMap<>();
+
+    private EmbeddedServer(HttpServer server, long seed) {
+        this.server = server;
+        this.seed = seed;
+    }
+
+    private static class User {
+        final int id;
+        final String password;
+
+        User(int id, String password) {
+            this.id = id;
+            this.password = password;
+        }
+    }
+
+    /**
+     * Starts a server with seed 0 on an ephemeral loopback port
+     *
+     * @return the running server
+     * @throws IOException if the server cannot listen
+     */
+    public static EmbeddedServer start() throws IOException {
+        return start(0, 0);
+    }
+
+    /**
+     * Starts a server on the given loopback port
+     *
+     * @param port the port to listen on, or 0 for an ephemeral one
+     * @param seed the seed the mines of every game are placed from
+     * @return the running server
+     * @throws IOException if the server cannot listen
+     */
+    public static EmbeddedServer start(int port, long seed) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.setExecutor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "embedded-server");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        EmbeddedServer server = new EmbeddedServer(httpServer, seed);
+        httpServer.createContext("/", server::handle);
+        httpServer.start();
+        return server;
+    }
+
+    public String getHostname() {
+        return server.getAddress().getHostString();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, dropping every user and game
+     */
+    public void stop() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    /**
+     * Creates a game, as a new game request does
+     *
+     * @param userId the id of the user playing the game
+     * @param rows   the number of rows
+     * @param cols   the number of columns
+     * @param mines  the number of mines
+     * @return the game
+     */
+    EmbeddedGame newGame(int userId, int rows, int cols, int mines) {
+        int id = nextGameId.getAndIncrement();
+        // Spread consecutive ids over unrelated seeds
+        EmbeddedGame game = new EmbeddedGame(id, userId, rows, cols, mines, seed ^ id * 0x9E3779B97F4A7C15L);
+        games.put(id, game);
+        return game;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            JsonNode body = read(exchange);
+
+            if (path.length == 2 && path[1].equals("login") && method.equals("POST")) {
+                login(exchange, body);
+                return;
+            }
+
+            String token = exchange.getRequestHeaders().getFirst("authorization");
+            Integer userId = token == null ? null : sessions.get(token);
+            if (userId == null) {
+                send(exchange, 401, "{}".getBytes());
+            } else if (path.length == 2 && path[1].equals("games") && method.equals("GET")) {
+                send(exchange, 200, MAPPER.writeValueAsBytes(games.values().stream()
+                        .filter(game -> game.getUserId() == userId)
+                        .mapToInt(EmbeddedGame::getId)
+                        .sorted()
+                        .toArray()));
+            } else if (path.length == 2 && path[1].equals("games") && method.equals("POST")) {
+                EmbeddedGame game = newGame(userId, body.path("rows").asInt(), body.path("cols").asInt(), body.path("mines").asInt());
+                sendGame(exchange, 201, game);
+            } else if (path.length >= 3 && path[1].equals("games")) {
+                EmbeddedGame game = games.get(Integer.parseInt(path[2]));
+                if (game == null || game.getUserId() != userId) {
+                    send(exchange, 404, "{}".getBytes());
+                } else if (path.length == 3 && method.equals("GET")) {
+                    getGame(exchange, game);
+                } else if (path.length == 4 && path[3].equals("board") && method.equals("PUT")) {
+                    boolean applied = game.act(body.path("row").asInt(), body.path("col").asInt(), body.path("status").asText());
+                    send(exchange, applied ? 200 : 409, "{}".getBytes());
+                } else {
+                    send(exchange, 404, "{}".getBytes());
+                }
+            } else {
+                send(exchange, 404, "{}".getBytes());
+            }
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            // Also a malformed number in the path
+            send(exchange, 400, MAPPER.writeValueAsBytes(Map.of("error", String.valueOf(e.getMessage()))));
+        } catch (RuntimeException e) {
+            send(exchange, 500, MAPPER.writeValueAsBytes(Map.of("error", String.valueOf(e.getMessage()))));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void login(HttpExchange exchange, JsonNode body) throws IOException {
+        String username = body.path("username").asText();
+        String password = body.path("password").asText();
+        User user = users.computeIfAbsent(username, name -> new User(nextUserId.getAndIncrement(), password));
+        if (username.isEmpty() || !user.password.equals(password)) {
+            send(exchange, 401, "{}".getBytes());
+            return;
+        }
+
+        byte[] random = new byte[16];
+        tokens.nextBytes(random);
+        StringBuilder token = new StringBuilder();
+        for (byte b : random)
+            token.append(String.format("%02x", b));
+        sessions.put(token.toString(), user.id);
+        send(exchange, 200, MAPPER.writeValueAsBytes(new Token(token.toString())));
+    }
+
+    private void getGame(HttpExchange exchange, EmbeddedGame game) throws IOException {
+        String etag = "\"" + game.getId() + "-" + game.getVersion() + "\"";
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        sendGame(exchange, 200, game);
+    }
+
+    private static void sendGame(HttpExchange exchange, int status, EmbeddedGame game) throws IOException {
+        GameState state;
+        long version;
+        synchronized (game) {
+            version = game.getVersion();
+            state = game.snapshot();
+        }
+        exchange.getResponseHeaders().set("ETag", "\"" + game.getId() + "-" + version + "\"");
+        send(exchange, status, GAME_WRITER.writeValueAsBytes(state));
+    }
+
+    private static JsonNode read(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        return body.length == 0 ? MAPPER.missingNode() : MAPPER.readTree(body);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
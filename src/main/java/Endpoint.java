@@ -0,0 +1,25 @@
+/**
+ * The endpoints of the Minesweeper API
+ */
+public enum Endpoint {
+    LOGIN("login"),
+    LIST("list"),
+    GET("get"),
+    NEW("new"),
+    ACTION("action");
+
+    private final String label;
+
+    Endpoint(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the short name of the endpoint used in reports
+     *
+     * @return the label
+     */
+    public String getLabel() {
+        return label;
+    }
+}
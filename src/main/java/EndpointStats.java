@@ -0,0 +1,196 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Request statistics of one endpoint of the Minesweeper API.
+ * <p>
+ * Network time runs from sending a request until its response is received, and deserialization time
+ * covers parsing the response body, so a slow server and a slow parser can be told apart.
+ * Recording is lock-free and does not allocate.
+ */
+public class EndpointStats implements EndpointStatsMBean {
+
+    private static final int STATUS_CODES = 600;
+
+    private final Endpoint endpoint;
+    private final LatencyHistogram network = new LatencyHistogram();
+    private final LatencyHistogram deserialization = new LatencyHistogram();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLongArray statusCounts = new AtomicLongArray(STATUS_CODES);
+
+    EndpointStats(Endpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void recordResponse(int status, long networkNanos, long sent, long received) {
+        network.record(networkNanos);
+        bytesSent.addAndGet(sent);
+        bytesReceived.addAndGet(received);
+        if (status >= 0 && status < STATUS_CODES)
+            statusCounts.incrementAndGet(status);
+    }
+
+    void recordFailure(long networkNanos, long sent) {
+        network.record(networkNanos);
+        bytesSent.addAndGet(sent);
+        failures.incrementAndGet();
+    }
+
+    void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    void recordHedge() {
+        hedges.incrementAndGet();
+    }
+
+    void recordCoalesced() {
+        coalesced.incrementAndGet();
+    }
+
+    void recordDeserialization(long nanos) {
+        deserialization.record(nanos);
+    }
+
+    void recordReceived(long received) {
+        bytesReceived.addAndGet(received);
+    }
+
+    /**
+     * Returns the latencies from sending a request until its response is received
+     *
+     * @return the network latency histogram
+     */
+    public LatencyHistogram getNetworkLatency() {
+        return network;
+    }
+
+    /**
+     * Returns the latencies of parsing response bodies
+     *
+     * @return the deserialization latency histogram
+     */
+    public LatencyHistogram getDeserializationLatency() {
+        return deserialization;
+    }
+
+    /**
+     * Returns the amount of responses received with the given status code
+     *
+     * @param status the HTTP status code
+     * @return the count
+     */
+    public long getStatusCount(int status) {
+        return status >= 0 && status < STATUS_CODES ? statusCounts.get(status) : 0;
+    }
+
+    @Override
+    public String getEndpoint() {
+        return endpoint.getLabel();
+    }
+
+    @Override
+    public long getRequests() {
+        return network.getCount();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.get();
+    }
+
+    @Override
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    @Override
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public String getStatusCounts() {
+        StringBuilder sb = new StringBuilder();
+        for (int status = 0; status < STATUS_CODES; status++) {
+            long count = statusCounts.get(status);
+            if (count > 0)
+                sb.append(sb.length() == 0 ? "" : " ").append(status).append('=').append(count);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public double getNetworkMeanMillis() {
+        return network.getMean() / 1e6;
+    }
+
+    @Override
+    public double getNetworkP50Millis() {
+        return network.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getNetworkP99Millis() {
+        return network.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getNetworkMaxMillis() {
+        return network.getMax() / 1e6;
+    }
+
+    @Override
+    public double getDeserializationMeanMillis() {
+        return deserialization.getMean() / 1e6;
+    }
+
+    @Override
+    public double getDeserializationP50Millis() {
+        return deserialization.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getDeserializationP99Millis() {
+        return deserialization.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getDeserializationMaxMillis() {
+        return deserialization.getMax() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        network.reset();
+        deserialization.reset();
+        failures.set(0);
+        retries.set(0);
+        hedges.set(0);
+        coalesced.set(0);
+        bytesSent.set(0);
+        bytesReceived.set(0);
+        for (int status = 0; status < STATUS_CODES; status++)
+            statusCounts.set(status, 0);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * The JMX view of the request statistics of one endpoint of the Minesweeper API
+ */
+public interface EndpointStatsMBean {
+
+    String getEndpoint();
+
+    long getRequests();
+
+    long getFailures();
+
+    long getRetries();
+
+    long getHedges();
+
+    long getCoalesced();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    String getStatusCounts();
+
+    double getNetworkMeanMillis();
+
+    double getNetworkP50Millis();
+
+    double getNetworkP99Millis();
+
+    double getNetworkMaxMillis();
+
+    double getDeserializationMeanMillis();
+
+    double getDeserializationP50Millis();
+
+    double getDeserializationP99Millis();
+
+    double getDeserializationMaxMillis();
+
+    void reset();
+}
@@ -1,13 +1,19 @@
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a single Minesweeper game
  */
 public class Game {
     private final MinesweeperClient minesweeperClient;
-    private GameState gameState;
+    private volatile GameState gameState;
+    private volatile Action lastAction;
+    private final List<BoardListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Creates a new game with the given state and API client
@@ -34,13 +40,58 @@ public class Game {
      * @return a string representation of the board
      */
     public String toString() {
+        Board board = gameState.board;
         StringJoiner sj = new StringJoiner(System.lineSeparator());
-        for (String[] row : gameState.board) {
-            sj.add("| " + String.join(" | ", row) + " |");
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < board.getRows(); row++) {
+            sb.setLength(0);
+            sb.append('|');
+            for (int col = 0; col < board.getCols(); col++) {
+                sb.append(' ').append(board.getSymbol(row, col)).append(" |");
+            }
+            sj.add(sb);
         }
         return sj.toString();
     }
 
+    /**
+     * Returns the board of the game
+     *
+     * @return the board
+     */
+    public Board get_board() {
+        return gameState.board;
+    }
+
+    /**
+     * Returns the value of a cell, as described in {@link #toString()}
+     *
+     * @param row the cell row
+     * @param col the cell column
+     * @return the cell value
+     */
+    public String get_cell(int row, int col) {
+        return gameState.board.getSymbol(row, col);
+    }
+
+    /**
+     * Returns the last action this game instance applied successfully
+     *
+     * @return the action, or null if none was applied
+     */
+    public Action getLastAction() {
+        return lastAction;
+    }
+
+    /**
+     * Returns the current state of the game, shared and not copied
+     *
+     * @return the game state
+     */
+    GameState state() {
+        return gameState;
+    }
+
     /**
      * Returns the game identifier
      * @return the identifier
@@ -86,15 +137,18 @@ public class Game {
      * @return true if the mark succeeded, false otherwise
      */
     public boolean mark(int row, int col) {
-        // Noop if the game is over
-        if (!get_status().equals("undecided"))
-            return false;
+        return act(row, col, Action.MARK);
+    }
 
-        boolean result = minesweeperClient.do_action(gameState.id, row, col, "?");
-        if (result) {
-            gameState = minesweeperClient.get_game(gameState.id).gameState;
-        }
-        return result;
+    /**
+     * Marks a cell and updates the game state if the game is undecided, without blocking
+     *
+     * @param row the cell row
+     * @param col the cell column
+     * @return a future that completes with true if the mark succeeded, false otherwise
+     */
+    public CompletableFuture<Boolean> mark_async(int row, int col) {
+        return act_async(row, col, Action.MARK);
     }
 
     /**
@@ -105,15 +159,18 @@ public class Game {
      * @return true if the flag succeeded, false otherwise
      */
     public boolean flag(int row, int col) {
-        // Noop if the game is over
-        if (!get_status().equals("undecided"))
-            return false;
+        return act(row, col, Action.FLAG);
+    }
 
-        boolean result = minesweeperClient.do_action(gameState.id, row, col, "F");
-        if (result) {
-            gameState = minesweeperClient.get_game(gameState.id).gameState;
-        }
-        return result;
+    /**
+     * Flags a cell and updates the game state if the game is undecided, without blocking
+     *
+     * @param row the cell row
+     * @param col the cell column
+     * @return a future that completes with true if the flag succeeded, false otherwise
+     */
+    public CompletableFuture<Boolean> flag_async(int row, int col) {
+        return act_async(row, col, Action.FLAG);
     }
 
     /**
@@ -124,14 +181,189 @@ public class Game {
      * @return true if swipe succeeded, false otherwise
      */
     public boolean swipe(int row, int col) {
+        return act(row, col, Action.SWIPE);
+    }
+
+    /**
+     * Swipes a cell and updates the game state if the game is undecided, without blocking
+     *
+     * @param row the cell row
+     * @param col the cell column
+     * @return a future that completes with true if the swipe succeeded, false otherwise
+     */
+    public CompletableFuture<Boolean> swipe_async(int row, int col) {
+        return act_async(row, col, Action.SWIPE);
+    }
+
+    /**
+     * Applies a batch of actions and updates the game state once at the end.
+     * <p>
+     * Actions are sent back-to-back in the given order. Since the server rejects actions on a finished game,
+     * the batch stops at the first action that fails. The game state is then refreshed with a single request
+     * if any action succeeded.
+     * <p>
+     * The response to an action does not tell whether it ended the game, so a swipe that hits a mine or clears
+     * the last safe cell is followed by one more action, refused by the server, before the batch stops. Checking
+     * the game after every swipe instead would cost a request per swipe, more than the one refused action.
+     *
+     * @param actions the actions to apply
+     * @return the result of the batch, telling which actions succeeded
+     */
+    public BatchResult applyActions(List<Action> actions) {
+        List<Action> batch = new ArrayList<>(actions);
+        boolean[] succeeded = new boolean[batch.size()];
+
+        // Noop if the game is over
+        if (!get_status().equals("undecided"))
+            return new BatchResult(batch, succeeded, 0);
+
+        int gameId = gameState.id;
+        int sent = 0;
+        while (sent < batch.size()) {
+            Action action = batch.get(sent++);
+            if (!minesweeperClient.do_action(gameId, action.getRow(), action.getCol(), action.getStatus()))
+                break;
+            succeeded[sent - 1] = true;
+            lastAction = action;
+        }
+
+        if (sent > 0 && succeeded[0]) {
+            update(minesweeperClient.get_game(gameId).gameState);
+        }
+        return new BatchResult(batch, succeeded, sent);
+    }
+
+    /**
+     * Applies a batch of actions as {@link #applyActions(List)} does, without blocking.
+     * Each action is pipelined as soon as the previous one completes.
+     *
+     * @param actions the actions to apply
+     * @return a future result of the batch
+     */
+    public CompletableFuture<BatchResult> applyActions_async(List<Action> actions) {
+        List<Action> batch = new ArrayList<>(actions);
+        boolean[] succeeded = new boolean[batch.size()];
+
+        // Noop if the game is over
+        if (!get_status().equals("undecided"))
+            return CompletableFuture.completedFuture(new BatchResult(batch, succeeded, 0));
+
+        int gameId = gameState.id;
+        return applyFrom(gameId, batch, succeeded).thenCompose(sent -> {
+            if (sent == 0 || !succeeded[0])
+                return CompletableFuture.completedFuture(new BatchResult(batch, succeeded, sent));
+
+            return minesweeperClient.get_game_async(gameId).thenApply(game -> {
+                update(game.gameState);
+                return new BatchResult(batch, succeeded, sent);
+            });
+        });
+    }
+
+    /**
+     * Sends the actions of a batch one after the other, completing with the amount sent. Actions whose response
+     * is already there are sent from a loop, so a long batch does not nest one stage per action.
+     */
+    private CompletableFuture<Integer> applyFrom(int gameId, List<Action> batch, boolean[] succeeded) {
+        CompletableFuture<Integer> sent = new CompletableFuture<>();
+        sendFrom(gameId, batch, succeeded, 0, sent);
+        return sent;
+    }
+
+    private void sendFrom(int gameId, List<Action> batch, boolean[] succeeded, int index, CompletableFuture<Integer> sent) {
+        for (; index < batch.size(); index++) {
+            Action action = batch.get(index);
+            CompletableFuture<Boolean> result = minesweeperClient.do_action_async(gameId, action.getRow(), action.getCol(), action.getStatus());
+            if (!result.isDone() || result.isCompletedExceptionally()) {
+                // Resumes the loop once the response arrives
+                int pending = index;
+                result.whenComplete((applied, e) -> {
+                    if (e != null)
+                        sent.completeExceptionally(e);
+                    else if (applied(batch, succeeded, pending, applied))
+                        sendFrom(gameId, batch, succeeded, pending + 1, sent);
+                    else
+                        sent.complete(pending + 1);
+                });
+                return;
+            }
+            if (!applied(batch, succeeded, index, result.join())) {
+                sent.complete(index + 1);
+                return;
+            }
+        }
+        sent.complete(index);
+    }
+
+    private boolean applied(List<Action> batch, boolean[] succeeded, int index, boolean applied) {
+        if (applied) {
+            succeeded[index] = true;
+            lastAction = batch.get(index);
+        }
+        return applied;
+    }
+
+    /**
+     * Registers a listener notified with the changed cells whenever an action updates the game state
+     *
+     * @param listener the listener
+     */
+    public void addBoardListener(BoardListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a registered listener
+     *
+     * @param listener the listener
+     */
+    public void removeBoardListener(BoardListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Replaces the game state, notifying the listeners of the changed cells.
+     * The boards are only compared when there is a listener.
+     */
+    private void update(GameState next) {
+        GameState previous = gameState;
+        gameState = next;
+        if (listeners.isEmpty())
+            return;
+
+        BoardDiff diff = BoardDiff.between(previous.board, next.board);
+        for (BoardListener listener : listeners)
+            listener.boardChanged(this, diff);
+    }
+
+    private boolean act(int row, int col, String status) {
         // Noop if the game is over
         if (!get_status().equals("undecided"))
             return false;
 
-        boolean result = minesweeperClient.do_action(gameState.id, row, col, " ");
+        boolean result = minesweeperClient.do_action(gameState.id, row, col, status);
         if (result) {
-            gameState = minesweeperClient.get_game(gameState.id).gameState;
+            lastAction = new Action(row, col, status);
+            update(minesweeperClient.get_game(gameState.id).gameState);
         }
         return result;
     }
+
+    private CompletableFuture<Boolean> act_async(int row, int col, String status) {
+        // Noop if the game is over
+        if (!get_status().equals("undecided"))
+            return CompletableFuture.completedFuture(false);
+
+        int gameId = gameState.id;
+        return minesweeperClient.do_action_async(gameId, row, col, status).thenCompose(result -> {
+            if (!result)
+                return CompletableFuture.completedFuture(false);
+
+            lastAction = new Action(row, col, status);
+            return minesweeperClient.get_game_async(gameId).thenApply(game -> {
+                update(game.gameState);
+                return true;
+            });
+        });
+    }
 }
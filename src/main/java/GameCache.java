@@ -0,0 +1,233 @@
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A client-side cache of game states keyed by game id.
+ * <p>
+ * Entries are evicted in least recently used order once the maximum amount of entries or bytes is exceeded.
+ * Entries younger than the time to live are served as they are, older ones must be revalidated with the server.
+ * Finished games never change, so they are always served from the cache.
+ * <p>
+ * Cached game states are shared by every caller served from the cache, so they must be read and never modified.
+ */
+public class GameCache {
+
+    // Rough per entry overhead of the state, the entry and the map node, on top of one byte per cell
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    // Invalidations of the games of each stripe, so a state fetched before one of them is not cached after it
+    private final long[] generations = new long[64];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new game cache
+     *
+     * @param maxEntries the maximum amount of cached games
+     * @param maxBytes   the maximum estimated size of all cached games, in bytes
+     * @param ttl        the time an entry is served without revalidation
+     */
+    public GameCache(int maxEntries, long maxBytes, Duration ttl) {
+        if (maxEntries <= 0 || maxBytes <= 0 || ttl.isNegative())
+            throw new IllegalArgumentException("Cache limits must be positive");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * A cached game state with its HTTP validators
+     */
+    static class Entry {
+        final GameState gameState;
+        final String etag;
+        final String lastModified;
+        final long size;
+        volatile long fetchedAt;
+
+        Entry(GameState gameState, String etag, String lastModified) {
+            this.gameState = gameState;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.size = sizeOf(gameState);
+            this.fetchedAt = System.nanoTime();
+        }
+
+        boolean isFinished() {
+            return "won".equals(gameState.game_status) || "lost".equals(gameState.game_status);
+        }
+
+        boolean canRevalidate() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    /**
+     * Returns the entry of a game, or null if it is not cached
+     */
+    synchronized Entry get(int gameId) {
+        return entries.get(gameId);
+    }
+
+    /**
+     * Returns true if the entry can be served without asking the server
+     */
+    boolean isFresh(Entry entry) {
+        return entry.isFinished() || System.nanoTime() - entry.fetchedAt < ttlNanos;
+    }
+
+    /**
+     * Returns the generation of a game, to be passed to {@link #put} with a state fetched after calling this
+     */
+    synchronized long generation(int gameId) {
+        return generations[stripe(gameId)];
+    }
+
+    /**
+     * Caches a game state, evicting the least recently used entries if the cache is over its limits.
+     * The state is dropped if the game was invalidated since its generation was taken, as it may predate
+     * the change that invalidated it.
+     */
+    synchronized void put(int gameId, long generation, GameState gameState, String etag, String lastModified) {
+        if (generations[stripe(gameId)] != generation)
+            return;
+        Entry entry = new Entry(gameState, etag, lastModified);
+        if (entry.size > maxBytes)
+            return;
+
+        Entry previous = entries.put(gameId, entry);
+        if (previous != null)
+            bytes -= previous.size;
+        bytes += entry.size;
+
+        Iterator<Map.Entry<Integer, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            if (eldest == entry)
+                continue;
+            it.remove();
+            bytes -= eldest.size;
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Marks an entry as confirmed up to date by the server
+     */
+    void revalidated(Entry entry) {
+        entry.fetchedAt = System.nanoTime();
+        revalidations.incrementAndGet();
+    }
+
+    /**
+     * Removes a game from the cache
+     *
+     * @param gameId the game id
+     */
+    public synchronized void invalidate(int gameId) {
+        generations[stripe(gameId)]++;
+        Entry previous = entries.remove(gameId);
+        if (previous != null)
+            bytes -= previous.size;
+    }
+
+    /**
+     * Removes all games from the cache
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < generations.length; i++)
+            generations[i]++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Returns the amount of games served from the cache without downloading their board,
+     * including those revalidated with the server
+     *
+     * @return the amount of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the amount of games that had to be downloaded
+     *
+     * @return the amount of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the amount of hits that needed a conditional request to the server
+     *
+     * @return the amount of revalidations
+     */
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    /**
+     * Returns the amount of entries evicted to stay within the cache limits
+     *
+     * @return the amount of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the amount of cached games
+     *
+     * @return the amount of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated size of all cached games
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "GameCache{entries=" + size() + ", bytes=" + getBytes() + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", revalidations=" + getRevalidations()
+                + ", evictions=" + getEvictions() + "}";
+    }
+
+    private int stripe(int gameId) {
+        return gameId & (generations.length - 1);
+    }
+
+    private static long sizeOf(GameState gameState) {
+        Board board = gameState.board;
+        return ENTRY_OVERHEAD + (board == null ? 0 : board.footprint());
+    }
+}
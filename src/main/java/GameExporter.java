@@ -0,0 +1,258 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports every game of the authenticated user as newline delimited JSON, one game per line.
+ * <p>
+ * The game ids are listed once and the games are fetched with at most a fixed amount of requests in flight.
+ * Each game is written as soon as it arrives, or in ascending id order in ordered mode, so at most that
+ * amount of games is held in memory whatever the amount of games of the user.
+ * A game that cannot be fetched is skipped and counted, and a later export resumed from the same file fetches it.
+ */
+public class GameExporter {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final ObjectWriter WRITER = new ObjectMapper()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .writerFor(GameState.class);
+
+    private final MinesweeperClient client;
+    private final int concurrency;
+    private final boolean ordered;
+
+    private final AtomicLong exported = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Creates a new exporter
+     *
+     * @param client      the logged-in client
+     * @param concurrency the maximum amount of game requests in flight
+     * @param ordered     true to write the games in ascending id order, false to write them as they arrive
+     */
+    public GameExporter(MinesweeperClient client, int concurrency, boolean ordered) {
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("Concurrency must be positive");
+        this.client = client;
+        this.concurrency = concurrency;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Exports every game of the user
+     *
+     * @param out where to write the games
+     * @throws IOException if the games cannot be written
+     */
+    public void export(OutputStream out) throws IOException {
+        export(out, new int[0]);
+    }
+
+    /**
+     * Exports every game of the user except the given ones
+     *
+     * @param out  where to write the games
+     * @param skip the sorted ids of the games already exported, as returned by {@link #exportedIds(Path)}
+     * @throws IOException if the games cannot be written
+     */
+    public void export(OutputStream out, int[] skip) throws IOException {
+        Integer[] listed = client.list_games();
+        int[] ids = new int[listed.length];
+        int size = 0;
+        for (Integer id : listed) {
+            if (Arrays.binarySearch(skip, id) < 0)
+                ids[size++] = id;
+        }
+        Arrays.sort(ids, 0, size);
+
+        if (ordered)
+            exportOrdered(out, ids, size);
+        else
+            exportUnordered(out, ids, size);
+        out.flush();
+    }
+
+    /**
+     * Keeps a window of requests in flight and writes them from the oldest one
+     */
+    private void exportOrdered(OutputStream out, int[] ids, int size) throws IOException {
+        ArrayDeque<CompletableFuture<byte[]>> window = new ArrayDeque<>(concurrency);
+        int next = 0;
+        while (next < size || !window.isEmpty()) {
+            while (next < size && window.size() < concurrency)
+                window.add(fetch(ids[next++]));
+
+            byte[] line = window.poll().join();
+            if (line != null)
+                write(out, line);
+        }
+    }
+
+    /**
+     * Starts a request whenever one of the requests in flight completes, writing each game as it arrives
+     */
+    private void exportUnordered(OutputStream out, int[] ids, int size) throws IOException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        IOException[] writeFailure = new IOException[1];
+        try {
+            for (int i = 0; i < size; i++) {
+                inFlight.acquire();
+                synchronized (writeFailure) {
+                    if (writeFailure[0] != null)
+                        break;
+                }
+                fetch(ids[i]).thenAccept(line -> {
+                    try {
+                        synchronized (writeFailure) {
+                            if (line != null && writeFailure[0] == null)
+                                write(out, line);
+                        }
+                    } catch (IOException e) {
+                        synchronized (writeFailure) {
+                            writeFailure[0] = e;
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            // Wait for the requests still in flight
+            inFlight.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        }
+        synchronized (writeFailure) {
+            if (writeFailure[0] != null)
+                throw writeFailure[0];
+        }
+    }
+
+    /**
+     * Fetches a game and encodes it as a line, or returns null if it could not be fetched
+     */
+    private CompletableFuture<byte[]> fetch(int gameId) {
+        return client.get_game_async(gameId)
+                .thenApply(game -> toLine(game.state()))
+                .exceptionally(e -> {
+                    failed.incrementAndGet();
+                    return null;
+                });
+    }
+
+    private void write(OutputStream out, byte[] line) throws IOException {
+        out.write(line);
+        out.flush();
+        exported.incrementAndGet();
+    }
+
+    /**
+     * Encodes a game as one JSON line, with its board as rows of cell symbols as sent by the Minesweeper API
+     */
+    static byte[] toLine(GameState state) {
+        Board board = state.board;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + board.getRows() * board.getCols() * 4);
+        try {
+            WRITER.writeValue(bytes, state);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bytes.write('\n');
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the ids of the games in an export file, to resume it.
+     * A last line cut short by an interrupted export is removed from the file.
+     *
+     * @param file the export file
+     * @return the sorted ids of the exported games, empty if the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    public static int[] exportedIds(Path file) throws IOException {
+        if (!Files.exists(file))
+            return new int[0];
+
+        truncatePartialLine(file);
+        int[] ids = new int[1024];
+        int size = 0;
+        try (JsonParser p = JSON.createParser(Files.newInputStream(file))) {
+            // The lines are a sequence of root level objects
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                if (t != JsonToken.START_OBJECT)
+                    continue;
+                while ((t = p.nextToken()) != JsonToken.END_OBJECT) {
+                    if (t == JsonToken.FIELD_NAME)
+                        continue;
+                    if (t == JsonToken.VALUE_NUMBER_INT && "id".equals(p.getCurrentName())) {
+                        if (size == ids.length)
+                            ids = Arrays.copyOf(ids, size * 2);
+                        ids[size++] = p.getIntValue();
+                    }
+                    p.skipChildren();
+                }
+            }
+        }
+        ids = Arrays.copyOf(ids, size);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static void truncatePartialLine(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            while (end > 0) {
+                long start = Math.max(0, end - buffer.capacity());
+                buffer.clear().limit((int) (end - start));
+                channel.read(buffer, start);
+                for (int i = buffer.position() - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        channel.truncate(start + i + 1);
+                        return;
+                    }
+                }
+                end = start;
+            }
+            channel.truncate(0);
+        }
+    }
+
+    /**
+     * Returns the amount of games written
+     *
+     * @return the exported games
+     */
+    public long getExported() {
+        return exported.get();
+    }
+
+    /**
+     * Returns the amount of games that could not be fetched and were skipped
+     *
+     * @return the failed games
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * A game state response along with the HTTP validators needed to revalidate it
+ */
+public class GameResponse {
+
+    private final GameState gameState;
+    private final String etag;
+    private final String lastModified;
+
+    GameResponse(GameState gameState, String etag, String lastModified) {
+        this.gameState = gameState;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the game state of the response
+     *
+     * @return the game state, or null if the server answered that the game was not modified
+     */
+    public GameState getGameState() {
+        return gameState;
+    }
+
+    /**
+     * Returns true if the server answered that the game was not modified since the given validators
+     *
+     * @return true if the game was not modified
+     */
+    public boolean isNotModified() {
+        return gameState == null;
+    }
+
+    /**
+     * Returns the ETag header of the response
+     *
+     * @return the ETag or null if the server did not send one
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Returns the Last-Modified header of the response
+     *
+     * @return the Last-Modified date or null if the server did not send one
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+}
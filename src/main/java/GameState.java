@@ -10,14 +10,14 @@ public class GameState {
     public Date started_at;
     public Date ended_at;
     public String game_status;
-    public String[][] board;
+    public Board board;
     public int mines;
 
     public GameState() {
 
     }
 
-    public void setBoard(String[][] board) {
+    public void setBoard(Board board) {
         this.board = board;
     }
 }
@@ -0,0 +1,211 @@
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls many games until they end, printing an event whenever the status of a game or its amount of played
+ * cells (cleared, flagged or marked) changes.
+ * <p>
+ * Every game is polled on one shared scheduler, with an interval of its own: the shortest one while the game
+ * changes, doubling after each poll that finds it unchanged up to the longest one. A game stops being polled once
+ * it is won or lost. The first polls are spread over the shortest interval and every interval varies by up to 10%,
+ * so polls do not arrive in bursts, and polls of all games together never exceed a rate of requests per second.
+ * Polls are sent without blocking, and at most a number of them are in flight at once.
+ * A poll that fails is printed and retried after a longer interval, but a game stops being watched once the server
+ * rejects its poll with a client error, such as a 404 for a game that does not exist or belongs to another user,
+ * or after {@value #MAX_FAILURES} consecutive failed polls. With a {@link GameCache} without time to live
+ * on the client, the poll of an unchanged game is a conditional request answered without its board.
+ */
+public class GameWatcher {
+
+    static final int MAX_FAILURES = 5;
+
+    private final MinesweeperClient client;
+    private final long minNanos;
+    private final long maxNanos;
+    private final double requestsPerSecond;
+    private final int concurrency;
+
+    /**
+     * A watched game and what its last poll found, only used by the scheduler
+     */
+    private static class Watched {
+        final int id;
+        long intervalNanos;
+        String status;
+        int played = -1;
+        int failures;
+
+        Watched(int id, long intervalNanos) {
+            this.id = id;
+            this.intervalNanos = intervalNanos;
+        }
+    }
+
+    /**
+     * Creates a new watcher
+     *
+     * @param client            the logged-in client
+     * @param minInterval       the interval between polls of a game that is changing
+     * @param maxInterval       the longest interval between polls of a game that is not
+     * @param requestsPerSecond the most polls per second of all games together
+     * @param concurrency       the most polls in flight at once
+     */
+    public GameWatcher(MinesweeperClient client, Duration minInterval, Duration maxInterval, double requestsPerSecond, int concurrency) {
+        if (minInterval.isNegative() || minInterval.isZero() || maxInterval.compareTo(minInterval) < 0)
+            throw new IllegalArgumentException("Invalid poll intervals " + minInterval + " and " + maxInterval);
+        if (requestsPerSecond <= 0 || concurrency <= 0)
+            throw new IllegalArgumentException("Rate and concurrency must be positive");
+        this.client = client;
+        this.minNanos = minInterval.toNanos();
+        this.maxNanos = maxInterval.toNanos();
+        this.requestsPerSecond = requestsPerSecond;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Polls the given games until every one of them is won or lost
+     *
+     * @param gameIds the ids of the games
+     * @param out     where to print the events
+     * @throws InterruptedException if the thread is interrupted while waiting for the games to end
+     */
+    public void watch(int[] gameIds, PrintStream out) throws InterruptedException {
+        Run run = new Run(gameIds.length, out);
+        try {
+            run.scheduler.execute(() -> {
+                for (int i = 0; i < gameIds.length; i++) {
+                    Watched game = new Watched(gameIds[i], minNanos);
+                    run.scheduler.schedule(() -> run.due(game), minNanos * i / gameIds.length, TimeUnit.NANOSECONDS);
+                }
+            });
+            run.ended.await();
+        } finally {
+            run.scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * The scheduler of one watch, its polls in flight and the games still to end
+     */
+    private class Run {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemon("game-watcher"));
+        final CountDownLatch ended;
+        final PrintStream out;
+        // What is left of the rate, negative while polls wait in line for it, only used by the scheduler
+        private double tokens = Math.max(1, requestsPerSecond);
+        private long refilled = System.nanoTime();
+        // Polls in flight, and the games whose turn came while the most were, only used by the scheduler
+        private int polling;
+        private final Queue<Watched> waiting = new ArrayDeque<>();
+
+        Run(int games, PrintStream out) {
+            this.ended = new CountDownLatch(games);
+            this.out = out;
+        }
+
+        /**
+         * Takes the turn of a game in the rate, and polls it once its turn comes
+         */
+        void due(Watched game) {
+            long now = System.nanoTime();
+            tokens = Math.min(Math.max(1, requestsPerSecond), tokens + (now - refilled) * requestsPerSecond / 1e9);
+            refilled = now;
+            // Polls taken ahead of the rate wait in line for it, each one turn after the previous
+            tokens--;
+            long wait = tokens >= 0 ? 0 : (long) (-tokens * 1e9 / requestsPerSecond);
+            if (wait == 0)
+                poll(game);
+            else
+                scheduler.schedule(() -> poll(game), wait, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Sends the poll of a game, or puts it in line while the most polls are in flight
+         */
+        private void poll(Watched game) {
+            if (polling >= concurrency) {
+                waiting.add(game);
+                return;
+            }
+            polling++;
+            client.get_game_async(game.id).whenComplete((polled, e) -> scheduler.execute(() -> {
+                polling--;
+                Watched next = waiting.poll();
+                if (next != null)
+                    poll(next);
+                polled(game, polled, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }));
+        }
+
+        private void polled(Watched game, Game polled, Throwable failure) {
+            if (failure != null) {
+                game.failures++;
+                boolean rejected = failure instanceof RequestRejectedException
+                        && ((RequestRejectedException) failure).getStatus() < 500;
+                if (rejected || game.failures >= MAX_FAILURES) {
+                    print(game, "error: " + failure.getMessage() + ", no longer watched");
+                    ended.countDown();
+                    return;
+                }
+                print(game, "error: " + failure.getMessage());
+                game.intervalNanos = Math.min(maxNanos, game.intervalNanos * 2);
+            } else {
+                game.failures = 0;
+                String status = polled.get_status();
+                int played = played(polled.get_board());
+                if (!status.equals(game.status) || played != game.played) {
+                    String delta = game.played < 0 || played == game.played ? "" : String.format(" (%+d)", played - game.played);
+                    print(game, status + ", " + played + " cells played" + delta);
+                    game.intervalNanos = minNanos;
+                } else {
+                    game.intervalNanos = Math.min(maxNanos, game.intervalNanos * 2);
+                }
+                game.status = status;
+                game.played = played;
+
+                if (!status.equals("undecided")) {
+                    ended.countDown();
+                    return;
+                }
+            }
+
+            long jittered = (long) (game.intervalNanos * ThreadLocalRandom.current().nextDouble(0.9, 1.1));
+            scheduler.schedule(() -> due(game), jittered, TimeUnit.NANOSECONDS);
+        }
+
+        private void print(Watched game, String event) {
+            out.println(LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + " game " + game.id + " " + event);
+        }
+    }
+
+    /**
+     * Returns the amount of cells cleared, flagged or marked
+     */
+    private static int played(Board board) {
+        int played = 0;
+        for (byte code : board.cells()) {
+            if (code != Board.UNEXPLORED)
+                played++;
+        }
+        return played;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * The safest cell to swipe when no certain move exists, as chosen by a {@link ProbabilityEngine}
+ */
+public class Guess {
+
+    private final int row;
+    private final int col;
+    private final double mineProbability;
+    private final boolean exact;
+
+    Guess(int row, int col, double mineProbability, boolean exact) {
+        this.row = row;
+        this.col = col;
+        this.mineProbability = mineProbability;
+        this.exact = exact;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    /**
+     * Returns the probability of the cell being a mine
+     *
+     * @return the mine probability, between 0 and 1
+     */
+    public double getMineProbability() {
+        return mineProbability;
+    }
+
+    /**
+     * Returns true if the probability was computed from every valid mine configuration,
+     * false if it was sampled or the time budget cut the enumeration short
+     *
+     * @return true if the probability is exact
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Returns the guess as a swipe action
+     *
+     * @return the action to apply
+     */
+    public Action toAction() {
+        return Action.swipe(row, col);
+    }
+
+    @Override
+    public String toString() {
+        return row + "," + col + " (" + String.format("%.1f", mineProbability * 100) + "% mine" + (exact ? "" : ", approximate") + ")";
+    }
+}
@@ -1,23 +1,52 @@
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.Map;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
 
 /**
  * An HTTP client for the Minesweeper API
  * This client handles requests and JSON parsing/serialization
+ * <p>
+ * Every request is available as a blocking method and as a non-blocking "_async" variant
+ * that completes on the client executor without holding a thread while the request is in flight.
+ * Failed requests throw a {@link RequestFailedException}, or complete their future with one, whose subclasses
+ * tell timeouts, error statuses and an open circuit apart. In particular, requests made with a user token
+ * throw an {@link UnauthorizedException} when the server rejects the token.
+ * Requests are retried, hedged and cut off by a circuit breaker as the {@link ResiliencePolicy} says,
+ * and every attempt is measured in the shared {@link ClientMetrics}.
+ * The HTTP version, timeouts, compression and whether boards are parsed lazily are set by a {@link TransportConfig}.
  */
 public class HTTPClient {
 
     private final String hostname;
     private final int port;
     private final HttpClient httpClient;
+    private final Executor executor;
+    private final Duration requestTimeout;
+    private final boolean gzip;
+    private final boolean lazyBoards;
+    private final ResiliencePolicy policy;
+    private final CircuitBreaker circuitBreaker;
+    private final ClientMetrics metrics = ClientMetrics.shared();
 
     /**
      * Creates a new instance of the Minesweeper HTTPClient
@@ -26,9 +55,50 @@ public class HTTPClient {
      * @param port     the port of the Minesweeper API server
      */
     public HTTPClient(String hostname, int port) {
+        this(hostname, port, null);
+    }
+
+    /**
+     * Creates a new instance of the Minesweeper HTTPClient that runs asynchronous work on the given executor
+     *
+     * @param hostname the host of the Minesweeper API server
+     * @param port     the port of the Minesweeper API server
+     * @param executor the executor for asynchronous requests, or null to use the default one
+     */
+    public HTTPClient(String hostname, int port, Executor executor) {
+        this(hostname, port, executor, new ResiliencePolicy());
+    }
+
+    /**
+     * Creates a new instance of the Minesweeper HTTPClient with the given resilience policy
+     *
+     * @param hostname the host of the Minesweeper API server
+     * @param port     the port of the Minesweeper API server
+     * @param executor the executor for asynchronous requests, or null to use the default one
+     * @param policy   how to retry, hedge and cut off failing requests
+     */
+    public HTTPClient(String hostname, int port, Executor executor, ResiliencePolicy policy) {
+        this(hostname, port, new TransportConfig().withExecutor(executor), policy);
+    }
+
+    /**
+     * Creates a new instance of the Minesweeper HTTPClient with the given transport and resilience policy
+     *
+     * @param hostname  the host of the Minesweeper API server
+     * @param port      the port of the Minesweeper API server
+     * @param transport the HTTP version, timeouts, executor and compression to use
+     * @param policy    how to retry, hedge and cut off failing requests
+     */
+    public HTTPClient(String hostname, int port, TransportConfig transport, ResiliencePolicy policy) {
         this.hostname = hostname;
         this.port = port;
-        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.httpClient = transport.newHttpClient();
+        this.executor = transport.getExecutor() != null ? transport.getExecutor() : ForkJoinPool.commonPool();
+        this.requestTimeout = transport.getRequestTimeout();
+        this.gzip = transport.isGzip();
+        this.lazyBoards = transport.isLazyBoards();
+        this.policy = policy;
+        this.circuitBreaker = CircuitBreaker.forHost(hostname, port, policy);
     }
 
     /**
@@ -36,60 +106,47 @@ public class HTTPClient {
      *
      * @param username the username
      * @param password the password
-     * @return a user token used to identify all future requests from this user
+     * @return a user token used to identify all future requests from this user, or empty if the credentials are wrong
      */
     public Optional<Token> login(String username, String password) {
-        try {
-            ObjectMapper requestObjectMapper = new ObjectMapper();
-            ObjectMapper responseObjectMapper = new ObjectMapper();
-
-            // Build login request body
-            Map<String, String> payload = Map.of("username", username, "password", password);
-            String requestBody = requestObjectMapper
-                    .writerWithDefaultPrettyPrinter()
-                    .writeValueAsString(payload);
-
-            URI uri = new URI("http", null, hostname, port, "/login", null, null);
-            HttpRequest request = HttpRequest.newBuilder(uri)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200)
-                return Optional.of(responseObjectMapper.readValue(response.body(), Token.class));
-            else
-                return Optional.empty();
-        } catch (InterruptedException | IOException | URISyntaxException e) {
-            e.printStackTrace();
-            return Optional.empty();
-        }
+        HttpRequest request = build(Endpoint.LOGIN, () -> loginRequest(username, password));
+        HttpResponse<byte[]> response = send(Endpoint.LOGIN, request, HttpResponse.BodyHandlers.ofByteArray());
+        return parse(Endpoint.LOGIN, () -> parseLogin(response));
+    }
+
+    /**
+     * Issues a non-blocking login request for the given username and password
+     *
+     * @param username the username
+     * @param password the password
+     * @return a future user token, empty if the credentials are wrong
+     */
+    public CompletableFuture<Optional<Token>> login_async(String username, String password) {
+        return sendAsync(Endpoint.LOGIN, () -> loginRequest(username, password), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> parse(Endpoint.LOGIN, () -> parseLogin(response)));
     }
 
     /**
      * Lists all the game identifiers of the user authenticated with the given token
      *
      * @param token the user token
-     * @return a list of all user game identifiers or empty if the request fails.
+     * @return a list of all user game identifiers
      */
     public Optional<Integer[]> list_games(String token) {
-        try {
-            ObjectMapper responseMapper = new ObjectMapper();
-            URI uri = new URI("http", null, hostname, port, "/games", null, null);
-            HttpRequest request = HttpRequest.newBuilder(uri)
-                    .header("Content-Type", "application/json")
-                    .headers("authorization", token)
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            return Optional.of(responseMapper.readValue(response.body(), Integer[].class));
-
-        } catch (URISyntaxException | InterruptedException | IOException e) {
-            e.printStackTrace();
-            return Optional.empty();
-        }
+        HttpRequest request = build(Endpoint.LIST, () -> listGamesRequest(token));
+        HttpResponse<byte[]> response = send(Endpoint.LIST, request, HttpResponse.BodyHandlers.ofByteArray());
+        return parse(Endpoint.LIST, () -> parseListGames(response));
+    }
+
+    /**
+     * Lists all the game identifiers of the user authenticated with the given token without blocking
+     *
+     * @param token the user token
+     * @return a future list of all user game identifiers
+     */
+    public CompletableFuture<Optional<Integer[]>> list_games_async(String token) {
+        return sendAsync(Endpoint.LIST, () -> listGamesRequest(token), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> parse(Endpoint.LIST, () -> parseListGames(response)));
     }
 
     /**
@@ -97,29 +154,66 @@ public class HTTPClient {
      *
      * @param token  the user token
      * @param gameId the game id
-     * @return the game state or empty if the request fails
+     * @return the game state
      */
     public Optional<GameState> get_game(String token, int gameId) {
-        try {
-            ObjectMapper responseMapper = new ObjectMapper();
-            URI uri = new URI("http", null, hostname, port, "/games/" + gameId, null, null);
-            HttpRequest request = HttpRequest.newBuilder(uri)
-                    .header("Content-Type", "application/json")
-                    .headers("authorization", token)
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if(response.statusCode() == 200)
-                return Optional.of(responseMapper.readValue(response.body(), GameState.class));
-            else
-                return Optional.empty();
-
-        } catch (URISyntaxException | InterruptedException | IOException e) {
-            e.printStackTrace();
-            return Optional.empty();
+        HttpRequest request = build(Endpoint.GET, () -> getGameRequest(token, gameId));
+        return parseGame(Endpoint.GET, sendForGame(Endpoint.GET, request), 200);
+    }
+
+    /**
+     * Returns the game state of the given game identifier unless it was not modified since the given validators
+     *
+     * @param token        the user token
+     * @param gameId       the game id
+     * @param etag         the ETag of the known game state, or null
+     * @param lastModified the Last-Modified date of the known game state, or null
+     * @return the game response, which may be "not modified"
+     */
+    public Optional<GameResponse> get_game_conditional(String token, int gameId, String etag, String lastModified) {
+        HttpRequest request = build(Endpoint.GET, () -> conditionalGameRequest(token, gameId, etag, lastModified));
+        return parseConditional(sendForGame(Endpoint.GET, request), etag, lastModified);
+    }
+
+    /**
+     * Returns the game state of the given game identifier unless it was not modified since the given validators,
+     * without blocking
+     *
+     * @param token        the user token
+     * @param gameId       the game id
+     * @param etag         the ETag of the known game state, or null
+     * @param lastModified the Last-Modified date of the known game state, or null
+     * @return the future game response, which may be "not modified"
+     */
+    public CompletableFuture<Optional<GameResponse>> get_game_conditional_async(String token, int gameId, String etag, String lastModified) {
+        return sendAsync(Endpoint.GET, () -> conditionalGameRequest(token, gameId, etag, lastModified), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> parseConditional(response, etag, lastModified));
+    }
+
+    private Optional<GameResponse> parseConditional(HttpResponse<?> response, String etag, String lastModified) {
+        String responseEtag = response.headers().firstValue("ETag").orElse(null);
+        String responseLastModified = response.headers().firstValue("Last-Modified").orElse(null);
+
+        if (response.statusCode() == 304) {
+            discard(response);
+            return Optional.of(new GameResponse(null,
+                    responseEtag != null ? responseEtag : etag,
+                    responseLastModified != null ? responseLastModified : lastModified));
         }
+        return parseGame(Endpoint.GET, response, 200)
+                .map(gameState -> new GameResponse(gameState, responseEtag, responseLastModified));
+    }
+
+    /**
+     * Returns the game state of the given game identifier without blocking
+     *
+     * @param token  the user token
+     * @param gameId the game id
+     * @return the future game state
+     */
+    public CompletableFuture<Optional<GameState>> get_game_async(String token, int gameId) {
+        return sendAsync(Endpoint.GET, () -> getGameRequest(token, gameId), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> parse(Endpoint.GET, () -> parseGameStateBytes(Endpoint.GET, response, 200)));
     }
 
     /**
@@ -132,34 +226,22 @@ public class HTTPClient {
      * @return the new game state
      */
     public Optional<GameState> new_game(String token, int rows, int cols, int mines) {
-        try {
-            ObjectMapper responseMapper = new ObjectMapper();
-            ObjectMapper requestMapper = new ObjectMapper();
-
-            // Build the request body
-            Map<String, Object> payload = Map.of("rows", rows, "cols", cols, "mines", mines);
-            String requestBody = requestMapper
-                    .writerWithDefaultPrettyPrinter()
-                    .writeValueAsString(payload);
-
-            URI uri = new URI("http", null, hostname, port, "/games", null, null);
-            HttpRequest request = HttpRequest.newBuilder(uri)
-                    .header("Content-Type", "application/json")
-                    .headers("authorization", token)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if(response.statusCode() == 201)
-                return Optional.of(responseMapper.readValue(response.body(), GameState.class));
-            else
-                return Optional.empty();
-
-        } catch (URISyntaxException | InterruptedException | IOException e) {
-            e.printStackTrace();
-            return Optional.empty();
-        }
+        HttpRequest request = build(Endpoint.NEW, () -> newGameRequest(token, rows, cols, mines));
+        return parseGame(Endpoint.NEW, sendForGame(Endpoint.NEW, request), 201);
+    }
+
+    /**
+     * Creates a new game for the user with the given dimensions without blocking
+     *
+     * @param token the user token
+     * @param rows  the number of rows
+     * @param cols  the number of columns
+     * @param mines the number of mines
+     * @return the future new game state
+     */
+    public CompletableFuture<Optional<GameState>> new_game_async(String token, int rows, int cols, int mines) {
+        return sendAsync(Endpoint.NEW, () -> newGameRequest(token, rows, cols, mines), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> parse(Endpoint.NEW, () -> parseGameStateBytes(Endpoint.NEW, response, 201)));
     }
 
     /**
@@ -173,32 +255,467 @@ public class HTTPClient {
      *               - "?" for mark
      *               - "F" for flag
      *               - " " for swipe
-     * @return true if the action request succeeded, false otherwise
+     * @return true if the action request succeeded, false if the server refused the action
      */
     public boolean do_action(String token, int gameId, int row, int col, String status) {
+        HttpRequest request = build(Endpoint.ACTION, () -> doActionRequest(token, gameId, row, col, status));
+        HttpResponse<Void> response = send(Endpoint.ACTION, request, HttpResponse.BodyHandlers.discarding());
+        return parseAction(response);
+    }
+
+    /**
+     * Performs an action on a cell of the given user game identifier without blocking
+     *
+     * @param token  the user token
+     * @param gameId the game id
+     * @param row    the cell row
+     * @param col    the cell column
+     * @param status the desired status for the cell, as in {@link #do_action(String, int, int, int, String)}
+     * @return a future that completes with true if the action request succeeded, false if the server refused the action
+     */
+    public CompletableFuture<Boolean> do_action_async(String token, int gameId, int row, int col, String status) {
+        return sendAsync(Endpoint.ACTION, () -> doActionRequest(token, gameId, row, col, status), HttpResponse.BodyHandlers.discarding())
+                .thenApply(this::parseAction);
+    }
+
+    HttpRequest loginRequest(String username, String password) throws IOException, URISyntaxException {
+        URI uri = new URI("http", null, hostname, port, "/login", null, null);
+        return newRequestBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(JsonCodec.login(username, password)))
+                .build();
+    }
+
+    private HttpRequest listGamesRequest(String token) throws URISyntaxException {
+        URI uri = new URI("http", null, hostname, port, "/games", null, null);
+        return newRequestBuilder(uri)
+                .header("Content-Type", "application/json")
+                .headers("authorization", token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest getGameRequest(String token, int gameId) throws URISyntaxException {
+        return getGameRequestBuilder(token, gameId).build();
+    }
+
+    private HttpRequest.Builder getGameRequestBuilder(String token, int gameId) throws URISyntaxException {
+        URI uri = new URI("http", null, hostname, port, "/games/" + gameId, null, null);
+        return newRequestBuilder(uri)
+                .header("Content-Type", "application/json")
+                .headers("authorization", token)
+                .GET();
+    }
+
+    private HttpRequest conditionalGameRequest(String token, int gameId, String etag, String lastModified) throws URISyntaxException {
+        HttpRequest.Builder builder = getGameRequestBuilder(token, gameId);
+        if (etag != null)
+            builder.header("If-None-Match", etag);
+        if (lastModified != null)
+            builder.header("If-Modified-Since", lastModified);
+        return builder.build();
+    }
+
+    HttpRequest newGameRequest(String token, int rows, int cols, int mines) throws URISyntaxException {
+        URI uri = new URI("http", null, hostname, port, "/games", null, null);
+        return newRequestBuilder(uri)
+                .header("Content-Type", "application/json")
+                .headers("authorization", token)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(JsonCodec.newGame(rows, cols, mines)))
+                .build();
+    }
+
+    HttpRequest doActionRequest(String token, int gameId, int row, int col, String status) throws IOException, URISyntaxException {
+        String path = "/games/" + gameId + "/board";
+        URI uri = new URI("http", null, hostname, port, path, null, null);
+        return newRequestBuilder(uri)
+                .header("Content-Type", "application/json")
+                .headers("authorization", token)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(JsonCodec.action(row, col, status)))
+                .build();
+    }
+
+    private HttpRequest.Builder newRequestBuilder(URI uri) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        if (requestTimeout != null)
+            builder.timeout(requestTimeout);
+        if (gzip)
+            builder.header("Accept-Encoding", "gzip");
+        return builder;
+    }
+
+    /**
+     * Sends a request, retrying and hedging it as the policy allows for its endpoint
+     */
+    private <T> HttpResponse<T> send(Endpoint endpoint, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        if (isHedged(endpoint))
+            return join(sendAsync(endpoint, request, bodyHandler, 0));
+
+        for (int retry = 0; ; retry++) {
+            boolean last = !isIdempotent(endpoint) || retry >= policy.getMaxRetries();
+            try {
+                HttpResponse<T> response = attempt(endpoint, request, bodyHandler);
+                if (last || !ResiliencePolicy.isRetryable(response.statusCode()))
+                    return response;
+                discard(response);
+            } catch (RequestFailedException e) {
+                if (last || !isRetryable(e))
+                    throw e;
+            }
+            metrics.get(endpoint).recordRetry();
+            try {
+                TimeUnit.NANOSECONDS.sleep(policy.backoffNanos(retry));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RequestFailedException(endpoint, e);
+            }
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(Endpoint endpoint, RequestSupplier request, HttpResponse.BodyHandler<T> bodyHandler) {
+        try {
+            return sendAsync(endpoint, build(endpoint, request), bodyHandler, 0);
+        } catch (RequestFailedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(Endpoint endpoint, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, int retry) {
+        CompletableFuture<HttpResponse<T>> response = isHedged(endpoint)
+                ? hedge(endpoint, request, bodyHandler)
+                : attemptAsync(endpoint, request, bodyHandler);
+        if (!isIdempotent(endpoint) || retry >= policy.getMaxRetries())
+            return response;
+
+        return response.handle((result, e) -> {
+            if (e == null && !ResiliencePolicy.isRetryable(result.statusCode()))
+                return CompletableFuture.completedFuture(result);
+            if (e != null && !isRetryable(cause(e)))
+                return CompletableFuture.<HttpResponse<T>>failedFuture(cause(e));
+            if (result != null)
+                discard(result);
+
+            metrics.get(endpoint).recordRetry();
+            Executor backoff = CompletableFuture.delayedExecutor(policy.backoffNanos(retry), TimeUnit.NANOSECONDS, executor);
+            return CompletableFuture.runAsync(() -> {
+            }, backoff).thenCompose(ignored -> sendAsync(endpoint, request, bodyHandler, retry + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Sends a request and, if it is still running past the hedging percentile of its endpoint latency,
+     * an identical second one. The first response that is not a server error wins and the other one is discarded.
+     * A failure or server error is only returned when it is the last attempt to complete.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> hedge(Endpoint endpoint, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        LatencyHistogram latency = metrics.get(endpoint).getNetworkLatency();
+        if (latency.getCount() < ResiliencePolicy.HEDGE_MIN_SAMPLES)
+            return attemptAsync(endpoint, request, bodyHandler);
+
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        BiConsumer<HttpResponse<T>, Throwable> complete = (response, e) -> {
+            boolean last = running.decrementAndGet() == 0;
+            if (e == null && response.statusCode() < 500) {
+                if (!result.complete(response))
+                    discard(response);
+            } else if (!last) {
+                // Another attempt may still succeed
+                if (response != null)
+                    discard(response);
+            } else if (e != null) {
+                result.completeExceptionally(cause(e));
+            } else if (!result.complete(response)) {
+                discard(response);
+            }
+        };
+
+        attemptAsync(endpoint, request, bodyHandler).whenComplete(complete);
+        long delay = latency.getPercentile(policy.getHedgePercentile());
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, executor).execute(() -> {
+            if (result.isDone())
+                return;
+            running.incrementAndGet();
+            metrics.get(endpoint).recordHedge();
+            attemptAsync(endpoint, request, bodyHandler).whenComplete(complete);
+        });
+        return result;
+    }
+
+    /**
+     * Sends a request once, measuring it as a request to the given endpoint
+     */
+    private <T> HttpResponse<T> attempt(Endpoint endpoint, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        if (!circuitBreaker.tryAcquire())
+            throw new CircuitOpenException(endpoint, hostname + ":" + port);
+
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<T> response = httpClient.send(request, bodyHandler);
+            responded(endpoint, event, start, request, response);
+            return response;
+        } catch (IOException e) {
+            throw failed(endpoint, event, start, request, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failed(endpoint, event, start, request, e);
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> attemptAsync(Endpoint endpoint, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        if (!circuitBreaker.tryAcquire())
+            return CompletableFuture.failedFuture(new CircuitOpenException(endpoint, hostname + ":" + port));
+
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, bodyHandler).handle((response, e) -> {
+            if (e != null)
+                throw failed(endpoint, event, start, request, cause(e));
+            responded(endpoint, event, start, request, response);
+            return response;
+        });
+    }
+
+    private void responded(Endpoint endpoint, RequestEvent event, long start, HttpRequest request, HttpResponse<?> response) {
+        metrics.response(endpoint, event, start, response.statusCode(), sentBytes(request), receivedBytes(response));
+        if (response.statusCode() >= 500)
+            circuitBreaker.onFailure();
+        else
+            circuitBreaker.onSuccess();
+    }
+
+    private RequestFailedException failed(Endpoint endpoint, RequestEvent event, long start, HttpRequest request, Throwable e) {
+        metrics.failure(endpoint, event, start, sentBytes(request));
+        if (e instanceof IOException)
+            circuitBreaker.onFailure();
+        return e instanceof HttpTimeoutException
+                ? new RequestTimeoutException(endpoint, e)
+                : new RequestFailedException(endpoint, e);
+    }
+
+    private boolean isIdempotent(Endpoint endpoint) {
+        return endpoint == Endpoint.LIST || endpoint == Endpoint.GET;
+    }
+
+    private boolean isHedged(Endpoint endpoint) {
+        return isIdempotent(endpoint) && policy.getHedgePercentile() > 0;
+    }
+
+    /**
+     * Returns true if a failure may go away on its own: a connection failure or a timeout,
+     * but not an error status, an open circuit or an interruption
+     */
+    private static boolean isRetryable(Throwable e) {
+        return e instanceof RequestFailedException
+                && !(e instanceof RequestRejectedException)
+                && !(e instanceof CircuitOpenException)
+                && !(e.getCause() instanceof InterruptedException);
+    }
+
+    /**
+     * Sends a request answered with a game state. The body is streamed into the parser so large boards are never
+     * copied into a String, unless boards are parsed lazily from the whole body later.
+     */
+    private HttpResponse<?> sendForGame(Endpoint endpoint, HttpRequest request) {
+        if (lazyBoards)
+            return send(endpoint, request, HttpResponse.BodyHandlers.ofByteArray());
+        return send(endpoint, request, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<GameState> parseGame(Endpoint endpoint, HttpResponse<?> response, int expectedStatus) {
+        if (response.body() instanceof byte[])
+            return parse(endpoint, () -> parseGameStateBytes(endpoint, (HttpResponse<byte[]>) response, expectedStatus));
+        return parse(endpoint, () -> parseGameState(endpoint, (HttpResponse<InputStream>) response, expectedStatus));
+    }
+
+    private static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof InputStream) {
+            try {
+                ((InputStream) response.body()).close();
+            } catch (IOException e) {
+                // The connection is dropped instead of reused
+            }
+        }
+    }
+
+    private static Throwable cause(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static long sentBytes(HttpRequest request) {
+        return request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).filter(length -> length > 0).orElse(0L);
+    }
+
+    /**
+     * Returns the size of a received body. Streamed bodies without a Content-Length are counted while they are parsed instead.
+     */
+    private static long receivedBytes(HttpResponse<?> response) {
+        Object body = response.body();
+        if (body instanceof byte[])
+            return ((byte[]) body).length;
+        return response.headers().firstValueAsLong("Content-Length").orElse(0);
+    }
+
+    /**
+     * Parses a response body, measuring it as deserialization time of the given endpoint
+     */
+    private <T> T deserialize(Endpoint endpoint, IOSupplier<T> parser) throws IOException {
+        DeserializationEvent event = new DeserializationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return parser.get();
+        } finally {
+            metrics.deserialized(endpoint, event, start);
+        }
+    }
+
+    private Optional<Token> parseLogin(HttpResponse<byte[]> response) throws IOException {
+        if (response.statusCode() >= 500)
+            throw new RequestRejectedException(Endpoint.LOGIN, response.statusCode());
+        if (response.statusCode() == 200)
+            return Optional.of(deserialize(Endpoint.LOGIN, () -> JsonCodec.TOKEN.readValue(decode(response))));
+        else
+            return Optional.empty();
+    }
+
+    private Optional<Integer[]> parseListGames(HttpResponse<byte[]> response) throws IOException {
+        checkStatus(Endpoint.LIST, response, 200);
+        return Optional.of(deserialize(Endpoint.LIST, () -> JsonCodec.GAME_IDS.readValue(decode(response))));
+    }
+
+    /**
+     * Parses a streamed game state. The body arrives while it is parsed, so its transfer time
+     * after the response headers counts as deserialization time.
+     */
+    private Optional<GameState> parseGameState(Endpoint endpoint, HttpResponse<InputStream> response, int expectedStatus) throws IOException {
+        CountingInputStream body = new CountingInputStream(response.body());
+        try (body) {
+            checkStatus(endpoint, response, expectedStatus);
+            return Optional.of(deserialize(endpoint, () -> JsonCodec.GAME_STATE.readValue(decode(response, body))));
+        } finally {
+            if (response.headers().firstValue("Content-Length").isEmpty())
+                metrics.received(endpoint, body.count);
+        }
+    }
+
+    private Optional<GameState> parseGameStateBytes(Endpoint endpoint, HttpResponse<byte[]> response, int expectedStatus) throws IOException {
+        checkStatus(endpoint, response, expectedStatus);
+        ObjectReader reader = lazyBoards ? JsonCodec.LAZY_GAME_STATE : JsonCodec.GAME_STATE;
+        return Optional.of(deserialize(endpoint, () -> reader.readValue(decode(response))));
+    }
+
+    /**
+     * Returns a received body, decompressed if the server compressed it
+     */
+    private static byte[] decode(HttpResponse<byte[]> response) throws IOException {
+        if (!isGzip(response))
+            return response.body();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static InputStream decode(HttpResponse<?> response, InputStream body) throws IOException {
+        return isGzip(response) ? new GZIPInputStream(body) : body;
+    }
+
+    private static boolean isGzip(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Encoding").map("gzip"::equalsIgnoreCase).orElse(false);
+    }
+
+    /**
+     * Returns false if the server refused the action, and throws if it rejected the token or failed
+     */
+    private boolean parseAction(HttpResponse<Void> response) {
+        if (response.statusCode() == 401)
+            throw new UnauthorizedException(Endpoint.ACTION);
+        if (response.statusCode() >= 500)
+            throw new RequestRejectedException(Endpoint.ACTION, response.statusCode());
+        return response.statusCode() == 200;
+    }
+
+    /**
+     * Throws an UnauthorizedException if the server rejected the user token of the request,
+     * or a RequestRejectedException if it answered with any other unexpected status
+     */
+    private static void checkStatus(Endpoint endpoint, HttpResponse<?> response, int expectedStatus) {
+        if (response.statusCode() == 401)
+            throw new UnauthorizedException(endpoint);
+        if (response.statusCode() != expectedStatus)
+            throw new RequestRejectedException(endpoint, response.statusCode());
+    }
+
+    /**
+     * Counts the bytes read from a streamed response body
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    private interface RequestSupplier {
+        HttpRequest get() throws IOException, URISyntaxException;
+    }
+
+    private static HttpRequest build(Endpoint endpoint, RequestSupplier supplier) {
+        try {
+            return supplier.get();
+        } catch (IOException | URISyntaxException e) {
+            throw new RequestFailedException(endpoint, e);
+        }
+    }
+
+    private static <T> T parse(Endpoint endpoint, IOSupplier<T> parser) {
         try {
-            ObjectMapper requestObjectMapper = new ObjectMapper();
-
-            // Build login request body
-            Map<String, Object> payload = Map.of("row", row, "col", col, "status", status);
-            String requestBody = requestObjectMapper
-                    .writerWithDefaultPrettyPrinter()
-                    .writeValueAsString(payload);
-
-            String path = "/games/" + gameId + "/board";
-            URI uri = new URI("http", null, hostname, port, path, null, null);
-            HttpRequest request = HttpRequest.newBuilder(uri)
-                    .header("Content-Type", "application/json")
-                    .headers("authorization", token)
-                    .PUT(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 200;
-
-        } catch (URISyntaxException | InterruptedException | IOException e) {
-            e.printStackTrace();
-            return false;
+            return parser.get();
+        } catch (IOException e) {
+            throw new RequestFailedException(endpoint, "Malformed response", e);
         }
     }
-}
\ No newline at end of file
+}
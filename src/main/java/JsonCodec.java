@@ -0,0 +1,137 @@
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The JSON readers and request bodies of {@link HTTPClient}.
+ * <p>
+ * Readers are created once, bound to their type, and shared by every client and thread. Request bodies are
+ * compact JSON written straight into byte arrays. The bodies of actions and new games are filled into templates
+ * of their fixed parts, since only their numbers and the action status change from one request to the next.
+ */
+final class JsonCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final ObjectReader GAME_STATE = MAPPER.readerFor(GameState.class);
+    static final ObjectReader LAZY_GAME_STATE = GAME_STATE.withAttribute(BoardDeserializer.LAZY, Boolean.TRUE);
+    static final ObjectReader BOARD = MAPPER.readerFor(Board.class);
+    static final ObjectReader TOKEN = MAPPER.readerFor(Token.class);
+    static final ObjectReader GAME_IDS = MAPPER.readerFor(Integer[].class);
+
+    private static final byte[] ROWS = ascii("{\"rows\":");
+    private static final byte[] COLS = ascii(",\"cols\":");
+    private static final byte[] MINES = ascii(",\"mines\":");
+    private static final byte[] ROW = ascii("{\"row\":");
+    private static final byte[] COL = ascii(",\"col\":");
+    private static final byte[] MARK = ascii(",\"status\":\"" + Action.MARK + "\"}");
+    private static final byte[] FLAG = ascii(",\"status\":\"" + Action.FLAG + "\"}");
+    private static final byte[] SWIPE = ascii(",\"status\":\"" + Action.SWIPE + "\"}");
+    // The longest int, with its sign
+    private static final int INT_DIGITS = 11;
+
+    private JsonCodec() {
+    }
+
+    /**
+     * Returns the body of a login request
+     */
+    static byte[] login(String username, String password) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + username.length() + password.length());
+        try (JsonGenerator g = MAPPER.getFactory().createGenerator(bytes)) {
+            g.writeStartObject();
+            g.writeStringField("username", username);
+            g.writeStringField("password", password);
+            g.writeEndObject();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the body of a new game request
+     */
+    static byte[] newGame(int rows, int cols, int mines) {
+        byte[] body = new byte[ROWS.length + COLS.length + MINES.length + 1 + 3 * INT_DIGITS];
+        int length = append(body, 0, ROWS);
+        length = appendInt(body, length, rows);
+        length = append(body, length, COLS);
+        length = appendInt(body, length, cols);
+        length = append(body, length, MINES);
+        length = appendInt(body, length, mines);
+        body[length++] = '}';
+        return Arrays.copyOf(body, length);
+    }
+
+    /**
+     * Returns the body of an action request, filling the action template for the statuses of {@link Action}
+     */
+    static byte[] action(int row, int col, String status) throws IOException {
+        byte[] tail = status.equals(Action.SWIPE) ? SWIPE : status.equals(Action.FLAG) ? FLAG : status.equals(Action.MARK) ? MARK : null;
+        if (tail == null)
+            return genericAction(row, col, status);
+
+        byte[] body = new byte[ROW.length + COL.length + tail.length + 2 * INT_DIGITS];
+        int length = append(body, 0, ROW);
+        length = appendInt(body, length, row);
+        length = append(body, length, COL);
+        length = appendInt(body, length, col);
+        length = append(body, length, tail);
+        return Arrays.copyOf(body, length);
+    }
+
+    /**
+     * Returns the body of an action with any other status, escaped by the generator
+     */
+    private static byte[] genericAction(int row, int col, String status) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48 + status.length());
+        try (JsonGenerator g = MAPPER.getFactory().createGenerator(bytes)) {
+            g.writeStartObject();
+            g.writeNumberField("row", row);
+            g.writeNumberField("col", col);
+            g.writeStringField("status", status);
+            g.writeEndObject();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int append(byte[] body, int length, byte[] part) {
+        System.arraycopy(part, 0, body, length, part.length);
+        return length + part.length;
+    }
+
+    /**
+     * Writes the decimal digits of an int, without going through a String
+     */
+    private static int appendInt(byte[] body, int length, int value) {
+        if (value == Integer.MIN_VALUE)
+            return append(body, length, ascii(Integer.toString(value)));
+        if (value < 0) {
+            body[length++] = '-';
+            value = -value;
+        }
+        int end = length + digits(value);
+        for (int i = end - 1; i >= length; i--) {
+            body[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A {@link Board} kept as the JSON it was received as, and parsed on the first access to its size or cells.
+ * <p>
+ * A game state read only for its status, mines or dates never builds its board, and its JSON is read in place
+ * from the response body instead of being copied. Once parsed, the JSON is released and the board is read as
+ * any other. A board that turns out to be malformed throws an {@link UncheckedIOException} when first accessed.
+ */
+class LazyBoard extends Board {
+
+    // The response body holding the board, released once it is parsed
+    private byte[] json;
+    private final int offset;
+    private final int length;
+    private volatile Board board;
+
+    /**
+     * Creates a board parsed later from a part of a JSON document
+     *
+     * @param json   the document
+     * @param offset the offset of the board array in the document
+     * @param length the length of the board array
+     */
+    LazyBoard(byte[] json, int offset, int length) {
+        super(0, 0, new byte[0]);
+        this.json = json;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns true if the board was parsed already
+     */
+    boolean isParsed() {
+        return board != null;
+    }
+
+    @Override
+    public int getRows() {
+        return parsed().getRows();
+    }
+
+    @Override
+    public int getCols() {
+        return parsed().getCols();
+    }
+
+    @Override
+    public byte get(int row, int col) {
+        return parsed().get(row, col);
+    }
+
+    @Override
+    public void set(int row, int col, byte code) {
+        parsed().set(row, col, code);
+    }
+
+    @Override
+    byte[] cells() {
+        return parsed().cells();
+    }
+
+    /**
+     * Returns the size of the JSON while the board is not parsed, so accounting for it does not parse it
+     */
+    @Override
+    long footprint() {
+        Board parsed = board;
+        return parsed != null ? parsed.footprint() : length;
+    }
+
+    private Board parsed() {
+        Board parsed = board;
+        if (parsed != null)
+            return parsed;
+        synchronized (this) {
+            if (board == null) {
+                try {
+                    board = JsonCodec.BOARD.readValue(json, offset, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Malformed board", e);
+                }
+                json = null;
+            }
+            return board;
+        }
+    }
+}
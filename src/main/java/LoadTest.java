@@ -0,0 +1,205 @@
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Drives many concurrent simulated players against a Minesweeper API server and measures it.
+ * <p>
+ * Each player logs in, creates a game and swipes random unexplored cells, creating a new game whenever
+ * the current one ends, until the test duration elapses. Players are chains of non-blocking requests
+ * on a small shared executor rather than a thread each, so thousands of them fit in one process.
+ * Every player has a token of its own but sends its requests through one shared HTTP client, so the
+ * selector thread and connection pool of the process do not grow with the amount of players.
+ */
+public class LoadTest {
+
+    private final String hostname;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final int players;
+    private final int rows;
+    private final int cols;
+    private final int mines;
+    private final long durationNanos;
+    private final long thinkMillis;
+
+    private final Map<Endpoint, LatencyHistogram> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, AtomicLong> errors = new EnumMap<>(Endpoint.class);
+    private long elapsedNanos;
+
+    /**
+     * Creates a new load test
+     *
+     * @param hostname    the hostname of the Minesweeper API server
+     * @param port        the port of the Minesweeper API server
+     * @param username    the username all players log in with
+     * @param password    the password
+     * @param players     the amount of concurrent players
+     * @param rows        the rows of each new game
+     * @param cols        the columns of each new game
+     * @param mines       the mines of each new game
+     * @param seconds     the duration of the test
+     * @param thinkMillis the pause of each player between two actions
+     */
+    public LoadTest(String hostname, int port, String username, String password,
+                    int players, int rows, int cols, int mines, long seconds, long thinkMillis) {
+        this.hostname = hostname;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.players = players;
+        this.rows = rows;
+        this.cols = cols;
+        this.mines = mines;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+        this.thinkMillis = thinkMillis;
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new LatencyHistogram());
+            errors.put(endpoint, new AtomicLong());
+        }
+    }
+
+    /**
+     * Runs the test until its duration elapses and every player finished its last request
+     */
+    public void run() {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        try {
+            long start = System.nanoTime();
+            long deadline = start + durationNanos;
+            HTTPClient httpClient = new HTTPClient(hostname, port, executor);
+            CompletableFuture<?>[] running = new CompletableFuture<?>[players];
+            for (int i = 0; i < players; i++) {
+                MinesweeperClient client = new MinesweeperClient(httpClient, hostname, port, null);
+                running[i] = play(client, deadline, executor);
+            }
+            CompletableFuture.allOf(running).join();
+            elapsedNanos = System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private CompletableFuture<Void> play(MinesweeperClient client, long deadline, ExecutorService executor) {
+        return timed(Endpoint.LOGIN, () -> client.login_async(username, password))
+                .thenCompose(success -> success
+                        ? loop(client, null, deadline, executor)
+                        : CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Plays one step: creates a game if there is none, otherwise swipes a random cell and refreshes the game
+     */
+    private CompletableFuture<Void> loop(MinesweeperClient client, Game game, long deadline, ExecutorService executor) {
+        if (System.nanoTime() >= deadline)
+            return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Game> step;
+        if (game == null || !game.get_status().equals("undecided")) {
+            step = timed(Endpoint.NEW, () -> client.new_game_async(rows, cols, mines));
+        } else if (ThreadLocalRandom.current().nextInt(50) == 0) {
+            step = timed(Endpoint.LIST, client::list_games_async).thenApply(ids -> game);
+        } else {
+            int[] cell = randomUnexplored(game.get_board());
+            step = timed(Endpoint.ACTION, () -> client.do_action_async(game.getId(), cell[0], cell[1], Action.SWIPE))
+                    .thenCompose(result -> timed(Endpoint.GET, () -> client.get_game_async(game.getId())));
+        }
+
+        return step
+                .handle((next, e) -> e == null ? next : game)
+                .thenComposeAsync(next -> loop(client, next, deadline, executor),
+                        CompletableFuture.delayedExecutor(thinkMillis, TimeUnit.MILLISECONDS, executor));
+    }
+
+    private <T> CompletableFuture<T> timed(Endpoint endpoint, Supplier<CompletableFuture<T>> request) {
+        long start = System.nanoTime();
+        return request.get().whenComplete((result, e) -> {
+            latencies.get(endpoint).record(System.nanoTime() - start);
+            if (e != null || Boolean.FALSE.equals(result))
+                errors.get(endpoint).incrementAndGet();
+        });
+    }
+
+    private static int[] randomUnexplored(Board board) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < 64; attempt++) {
+            int row = random.nextInt(board.getRows());
+            int col = random.nextInt(board.getCols());
+            if (board.get(row, col) == Board.UNEXPLORED)
+                return new int[]{row, col};
+        }
+        for (int row = 0; row < board.getRows(); row++) {
+            for (int col = 0; col < board.getCols(); col++) {
+                if (board.get(row, col) == Board.UNEXPLORED)
+                    return new int[]{row, col};
+            }
+        }
+        return new int[]{0, 0};
+    }
+
+    /**
+     * Returns a human readable report of the test
+     *
+     * @return the report
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        double seconds = elapsedNanos / 1e9;
+        sb.append(String.format("Players: %d, duration: %.1f s, think time: %d ms%n", players, seconds, thinkMillis));
+        sb.append(String.format("%-8s %10s %9s %9s %9s %9s %9s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors"));
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyHistogram h = latencies.get(endpoint);
+            long count = h.getCount();
+            sb.append(String.format("%-8s %10d %9.1f %9.2f %9.2f %9.2f %9.2f %7.2f%%%n",
+                    endpoint.getLabel(), count, count / seconds,
+                    h.getPercentile(50) / 1e6, h.getPercentile(95) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6,
+                    count == 0 ? 0 : 100.0 * errors.get(endpoint).get() / count));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a machine readable report of the test
+     *
+     * @return the report as a JSON document
+     */
+    public String toJson() {
+        double seconds = elapsedNanos / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("players", players);
+        report.put("duration_seconds", seconds);
+        report.put("think_time_ms", thinkMillis);
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyHistogram h = latencies.get(endpoint);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", h.getCount());
+            stats.put("requests_per_second", h.getCount() / seconds);
+            stats.put("p50_ms", h.getPercentile(50) / 1e6);
+            stats.put("p95_ms", h.getPercentile(95) / 1e6);
+            stats.put("p99_ms", h.getPercentile(99) / 1e6);
+            stats.put("max_ms", h.getMax() / 1e6);
+            stats.put("errors", errors.get(endpoint).get());
+            stats.put("error_rate", h.getCount() == 0 ? 0.0 : (double) errors.get(endpoint).get() / h.getCount());
+            endpoints.put(endpoint.getLabel(), stats);
+        }
+        report.put("endpoints", endpoints);
+        try {
+            return new ObjectMapper().writeValueAsString(report);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
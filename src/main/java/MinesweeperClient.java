@@ -1,13 +1,41 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * A Minesweeper API client that encapsulates authenticated tokens.
  * The client injects the authenticated user token in all the requests.
+ * When the server rejects an expired token, the client logs in again once and retries the request.
+ * Concurrent requests for the same game share one request and one parsed state, and an action on a game
+ * is a barrier: reads started after it completes never share a request started before.
+ * Failed requests throw a {@link RequestFailedException}, as described in {@link HTTPClient}.
+ * A {@link SessionPool} hands out clients of many users that share one transport.
  */
 public class MinesweeperClient {
 
     private final HTTPClient HTTPClient;
-    private Token token;
+    private final String hostname;
+    private final int port;
+    // The pool whose turns the requests wait for, or null
+    private final SessionPool.Session session;
+    private volatile Token token;
+    private volatile GameCache gameCache;
+    private volatile SessionStore sessionStore;
+    private volatile String username;
+    private volatile String password;
+    // True to log in on the first request instead of requiring a login
+    private volatile boolean lazyLogin;
+    // The game requests in flight, shared by concurrent callers for the same game
+    private final ConcurrentHashMap<Integer, CompletableFuture<GameState>> gameRequests = new ConcurrentHashMap<>();
+
+    // The re-login in flight and the token it replaces, guarded by this
+    private CompletableFuture<Token> relogin;
+    private Token reloginStale;
 
     /**
      * Creates a new Minesweeper API client
@@ -16,27 +44,131 @@ public class MinesweeperClient {
      * @param port     the port of the Minesweeper API server
      */
     public MinesweeperClient(String hostname, int port) {
-        this.HTTPClient = new HTTPClient(hostname, port);
+        this(hostname, port, new TransportConfig());
+    }
+
+    /**
+     * Creates a new Minesweeper API client that runs asynchronous requests on the given executor
+     *
+     * @param hostname the hostname of the Minesweeper API server
+     * @param port     the port of the Minesweeper API server
+     * @param executor the executor for asynchronous requests, or null to use the default one
+     */
+    public MinesweeperClient(String hostname, int port, Executor executor) {
+        this(hostname, port, executor, new ResiliencePolicy());
+    }
+
+    /**
+     * Creates a new Minesweeper API client that copes with a failing server as the given policy says
+     *
+     * @param hostname the hostname of the Minesweeper API server
+     * @param port     the port of the Minesweeper API server
+     * @param executor the executor for asynchronous requests, or null to use the default one
+     * @param policy   how to retry, hedge and cut off failing requests
+     */
+    public MinesweeperClient(String hostname, int port, Executor executor, ResiliencePolicy policy) {
+        this(hostname, port, new TransportConfig().withExecutor(executor), policy);
+    }
+
+    /**
+     * Creates a new Minesweeper API client with the given transport
+     *
+     * @param hostname  the hostname of the Minesweeper API server
+     * @param port      the port of the Minesweeper API server
+     * @param transport the HTTP version, timeouts, executor and compression to use
+     */
+    public MinesweeperClient(String hostname, int port, TransportConfig transport) {
+        this(hostname, port, transport, new ResiliencePolicy());
+    }
+
+    /**
+     * Creates a new Minesweeper API client with the given transport and resilience policy
+     *
+     * @param hostname  the hostname of the Minesweeper API server
+     * @param port      the port of the Minesweeper API server
+     * @param transport the HTTP version, timeouts, executor and compression to use
+     * @param policy    how to retry, hedge and cut off failing requests
+     */
+    public MinesweeperClient(String hostname, int port, TransportConfig transport, ResiliencePolicy policy) {
+        this(new HTTPClient(hostname, port, transport, policy), hostname, port, null);
+    }
+
+    /**
+     * Creates a client sending its requests through a shared HTTP client, taking turns in the given
+     * session pool, or in none when null
+     */
+    MinesweeperClient(HTTPClient httpClient, String hostname, int port, SessionPool.Session session) {
+        this.HTTPClient = httpClient;
+        this.hostname = hostname;
+        this.port = port;
+        this.session = session;
+    }
+
+    /**
+     * Sets the credentials the client logs in with on its first request
+     */
+    void setCredentials(String username, String password) {
+        this.username = username;
+        this.password = password;
+        this.lazyLogin = true;
     }
 
     /**
      * Performs a user login to the Minesweeper API server
      * On success, all subsequent requests will be performed as authored by that user
+     * A token found in the session store for the same password is reused without contacting the server.
      *
      * @param username the username
      * @param password the password
      * @return true if login was successful, false otherwise
      */
     public boolean login(String username, String password) {
+        this.username = username;
+        this.password = password;
+        if (loadSession())
+            return true;
+
         Optional<Token> token = this.HTTPClient.login(username, password);
 
         if (token.isEmpty())
             return false;
 
-        this.token = token.get();
+        saveSession(token.get());
         return true;
     }
 
+    /**
+     * Returns true if the client logged in with the given password
+     */
+    boolean hasPassword(String password) {
+        String current = this.password;
+        return current != null && password != null
+                && MessageDigest.isEqual(current.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Performs a non-blocking user login to the Minesweeper API server
+     * On success, all subsequent requests will be performed as authored by that user
+     *
+     * @param username the username
+     * @param password the password
+     * @return a future that completes with true if login was successful, false otherwise
+     */
+    public CompletableFuture<Boolean> login_async(String username, String password) {
+        this.username = username;
+        this.password = password;
+        if (loadSession())
+            return CompletableFuture.completedFuture(true);
+
+        return this.HTTPClient.login_async(username, password).thenApply(token -> {
+            if (token.isEmpty())
+                return false;
+
+            saveSession(token.get());
+            return true;
+        });
+    }
+
     /**
      * Returns an array of game identifiers of the authenticated user
      * Throws a RuntimeException if the client is not authenticated.
@@ -44,18 +176,26 @@ public class MinesweeperClient {
      * @return an array of game identifiers
      */
     public Integer[] list_games() {
-        if (token == null)
-            throw new RuntimeException("Not authenticated");
-
-        Optional<Integer[]> response = HTTPClient.list_games(token.getToken());
+        Optional<Integer[]> response = authenticated(token -> HTTPClient.list_games(token));
 
         if (response.isEmpty()) {
-            throw new RuntimeException("Request failed");
+            throw new RequestFailedException(Endpoint.LIST, "Request failed");
         }
 
         return response.get();
     }
 
+    /**
+     * Returns a future array of game identifiers of the authenticated user
+     * The future fails with a RuntimeException if the client is not authenticated or the request fails.
+     *
+     * @return a future array of game identifiers
+     */
+    public CompletableFuture<Integer[]> list_games_async() {
+        return authenticated_async(token -> HTTPClient.list_games_async(token))
+                .thenApply(response -> response.orElseThrow(() -> new RequestFailedException(Endpoint.LIST, "Request failed")));
+    }
+
     /**
      * Creates a new game for the authenticated user with the given dimensions
      * @param rows the number of rows
@@ -64,16 +204,37 @@ public class MinesweeperClient {
      * @return a new game instance
      */
     public Game new_game(int rows, int cols, int mines) {
-        if (token == null)
-            throw new RuntimeException("Not authenticated");
-
-        Optional<GameState> response = HTTPClient.new_game(token.getToken(), rows, cols, mines);
+        Optional<GameState> response = authenticated(token -> HTTPClient.new_game(token, rows, cols, mines));
 
         if (response.isEmpty()) {
-            throw new RuntimeException("Request failed");
+            throw new RequestFailedException(Endpoint.NEW, "Request failed");
         }
 
-        return new Game(this, response.get());
+        return created(response.get());
+    }
+
+    /**
+     * Creates a new game for the authenticated user with the given dimensions without blocking
+     * The future fails with a RuntimeException if the client is not authenticated or the request fails.
+     *
+     * @param rows  the number of rows
+     * @param cols  the number of columns
+     * @param mines the number of mines
+     * @return a future new game instance
+     */
+    public CompletableFuture<Game> new_game_async(int rows, int cols, int mines) {
+        return authenticated_async(token -> HTTPClient.new_game_async(token, rows, cols, mines))
+                .thenApply(response -> created(response.orElseThrow(() -> new RequestFailedException(Endpoint.NEW, "Request failed"))));
+    }
+
+    /**
+     * Returns the instance of a game just created, seeding the cache with its state
+     */
+    private Game created(GameState gameState) {
+        GameCache cache = this.gameCache;
+        if (cache != null)
+            cache.put(gameState.id, cache.generation(gameState.id), gameState, null, null);
+        return new Game(this, gameState);
     }
 
 
@@ -85,15 +246,122 @@ public class MinesweeperClient {
      * @return a game instance
      */
     public Game get_game(int gameId) {
-        if (token == null)
-            throw new RuntimeException("Not authenticated");
+        CompletableFuture<GameState> request = new CompletableFuture<>();
+        CompletableFuture<GameState> shared = gameRequests.putIfAbsent(gameId, request);
+        if (shared != null) {
+            ClientMetrics.shared().get(Endpoint.GET).recordCoalesced();
+            return new Game(this, join(shared));
+        }
+
+        try {
+            GameState gameState = fetch_game(gameId);
+            gameRequests.remove(gameId, request);
+            request.complete(gameState);
+            return new Game(this, gameState);
+        } catch (RuntimeException e) {
+            gameRequests.remove(gameId, request);
+            request.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private GameState fetch_game(int gameId) {
+        GameCache cache = this.gameCache;
+        if (cache != null)
+            return authenticated(token -> get_game_cached(cache, token, gameId));
 
-        Optional<GameState> response = HTTPClient.get_game(token.getToken(), gameId);
+        Optional<GameState> response = authenticated(token -> HTTPClient.get_game(token, gameId));
 
         if (response.isEmpty())
-            throw new RuntimeException("Request failed");
+            throw new RequestFailedException(Endpoint.GET, "Request failed");
 
-        return new Game(this, response.get());
+        return response.get();
+    }
+
+    private GameState get_game_cached(GameCache cache, String token, int gameId) {
+        // Taken before the request, so a state fetched while an action invalidates the game is not cached
+        long generation = cache.generation(gameId);
+        GameCache.Entry entry = cache.get(gameId);
+        if (entry != null && cache.isFresh(entry)) {
+            cache.hit();
+            return entry.gameState;
+        }
+
+        // Stale entries are revalidated with a conditional request when the server sent validators
+        boolean revalidate = entry != null && entry.canRevalidate();
+        Optional<GameResponse> response = HTTPClient.get_game_conditional(token, gameId,
+                revalidate ? entry.etag : null, revalidate ? entry.lastModified : null);
+        return cached(cache, gameId, generation, revalidate ? entry : null, response);
+    }
+
+    private CompletableFuture<GameState> get_game_cached_async(GameCache cache, String token, int gameId) {
+        long generation = cache.generation(gameId);
+        GameCache.Entry entry = cache.get(gameId);
+        if (entry != null && cache.isFresh(entry)) {
+            cache.hit();
+            return CompletableFuture.completedFuture(entry.gameState);
+        }
+
+        boolean revalidate = entry != null && entry.canRevalidate();
+        return HTTPClient.get_game_conditional_async(token, gameId,
+                        revalidate ? entry.etag : null, revalidate ? entry.lastModified : null)
+                .thenApply(response -> cached(cache, gameId, generation, revalidate ? entry : null, response));
+    }
+
+    /**
+     * Returns the game state of a response to a conditional request, caching it unless the game was invalidated
+     * since the generation was taken
+     */
+    private static GameState cached(GameCache cache, int gameId, long generation, GameCache.Entry revalidated,
+                                    Optional<GameResponse> response) {
+        if (response.isEmpty() || (response.get().isNotModified() && revalidated == null))
+            throw new RequestFailedException(Endpoint.GET, "Request failed");
+
+        GameResponse gameResponse = response.get();
+        if (gameResponse.isNotModified()) {
+            cache.hit();
+            cache.revalidated(revalidated);
+            return revalidated.gameState;
+        }
+
+        cache.miss();
+        cache.put(gameId, generation, gameResponse.getGameState(), gameResponse.getEtag(), gameResponse.getLastModified());
+        return gameResponse.getGameState();
+    }
+
+    /**
+     * Returns a future game instance corresponding to the provided game id
+     * The future fails with a RuntimeException if the client is not authenticated or the request fails.
+     *
+     * @param gameId the game identifier
+     * @return a future game instance
+     */
+    public CompletableFuture<Game> get_game_async(int gameId) {
+        CompletableFuture<GameState> request = new CompletableFuture<>();
+        CompletableFuture<GameState> shared = gameRequests.putIfAbsent(gameId, request);
+        if (shared != null) {
+            ClientMetrics.shared().get(Endpoint.GET).recordCoalesced();
+            return shared.thenApply(gameState -> new Game(this, gameState));
+        }
+
+        fetch_game_async(gameId).whenComplete((gameState, e) -> {
+            // Leave the map first, so a caller woken by the result does not share this request again
+            gameRequests.remove(gameId, request);
+            if (e != null)
+                request.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            else
+                request.complete(gameState);
+        });
+        return request.thenApply(gameState -> new Game(this, gameState));
+    }
+
+    private CompletableFuture<GameState> fetch_game_async(int gameId) {
+        GameCache cache = this.gameCache;
+        if (cache != null)
+            return authenticated_async(token -> get_game_cached_async(cache, token, gameId));
+
+        return authenticated_async(token -> HTTPClient.get_game_async(token, gameId))
+                .thenApply(response -> response.orElseThrow(() -> new RequestFailedException(Endpoint.GET, "Request failed")));
     }
 
     /**
@@ -110,9 +378,200 @@ public class MinesweeperClient {
      * @return true if the action was executed successfully
      */
     public boolean do_action(int gameId, int row, int col, String status) {
-        if (token == null)
-            throw new RuntimeException("Not authenticated");
+        invalidate(gameId);
+        try {
+            return authenticated(token -> this.HTTPClient.do_action(token, gameId, row, col, status));
+        } finally {
+            invalidate(gameId);
+        }
+    }
+
+    /**
+     * Performs an action on a cell of the given game id without blocking
+     * The future fails with a RuntimeException if the client is not authenticated.
+     *
+     * @param gameId the game id
+     * @param row    the cell row
+     * @param col    the cell column
+     * @param status the desired status for the cell, as in {@link #do_action(int, int, int, String)}
+     * @return a future that completes with true if the action was executed successfully
+     */
+    public CompletableFuture<Boolean> do_action_async(int gameId, int row, int col, String status) {
+        invalidate(gameId);
+        return authenticated_async(token -> this.HTTPClient.do_action_async(token, gameId, row, col, status))
+                .whenComplete((result, e) -> invalidate(gameId));
+    }
+
+    /**
+     * Enables a client-side cache of game states for {@link #get_game(int)} and {@link #get_game_async(int)},
+     * or disables it when null. Games served from the cache share their state, which must not be modified.
+     *
+     * @param gameCache the cache to use, or null
+     */
+    public void setGameCache(GameCache gameCache) {
+        this.gameCache = gameCache;
+    }
+
+    /**
+     * Returns the client-side cache of game states
+     *
+     * @return the cache, or null if caching is disabled
+     */
+    public GameCache getGameCache() {
+        return gameCache;
+    }
 
-        return this.HTTPClient.do_action(this.token.getToken(), gameId, row, col, status);
+    /**
+     * Keeps user tokens in the given session store across processes, or only in memory when null
+     *
+     * @param sessionStore the session store to use, or null
+     */
+    public void setSessionStore(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    /**
+     * Runs a request with the current token once the session pool gives it a turn
+     */
+    private <T> T authenticated(Function<String, T> request) {
+        SessionPool.Session session = this.session;
+        if (session == null)
+            return withToken(request);
+
+        session.admit().join();
+        try {
+            return withToken(request);
+        } finally {
+            session.release();
+        }
+    }
+
+    private <T> CompletableFuture<T> authenticated_async(Function<String, CompletableFuture<T>> request) {
+        SessionPool.Session session = this.session;
+        if (session == null)
+            return withToken_async(request);
+
+        return session.admit()
+                .thenCompose(turn -> withToken_async(request))
+                .whenComplete((result, e) -> session.release());
+    }
+
+    /**
+     * Runs a request with the current token, logging in again and retrying once if the token was rejected
+     */
+    private <T> T withToken(Function<String, T> request) {
+        Token current = this.token;
+        if (current == null) {
+            if (!lazyLogin)
+                throw new RuntimeException("Not authenticated");
+            current = join(relogin(null));
+        }
+
+        try {
+            return request.apply(current.getToken());
+        } catch (UnauthorizedException e) {
+            Token fresh;
+            try {
+                fresh = relogin(current).join();
+            } catch (CompletionException failure) {
+                throw failure.getCause() instanceof RuntimeException ? (RuntimeException) failure.getCause() : failure;
+            }
+            return request.apply(fresh.getToken());
+        }
+    }
+
+    private <T> CompletableFuture<T> withToken_async(Function<String, CompletableFuture<T>> request) {
+        Token current = this.token;
+        if (current == null) {
+            if (!lazyLogin)
+                return CompletableFuture.failedFuture(new RuntimeException("Not authenticated"));
+            return relogin(null).thenCompose(fresh -> withToken_async(request));
+        }
+
+        return request.apply(current.getToken())
+                .handle((result, e) -> {
+                    if (e == null)
+                        return CompletableFuture.completedFuture(result);
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (!(cause instanceof UnauthorizedException))
+                        return CompletableFuture.<T>failedFuture(e);
+                    return relogin(current).thenCompose(fresh -> request.apply(fresh.getToken()));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Replaces a rejected token with a new login, or logs in a client without a token when given null.
+     * Concurrent callers holding the same rejected token share a single login request, and callers holding
+     * an already replaced token get the new one.
+     */
+    private synchronized CompletableFuture<Token> relogin(Token stale) {
+        Token current = this.token;
+        if (current != stale) {
+            return current == null
+                    ? CompletableFuture.failedFuture(new RuntimeException("Not authenticated"))
+                    : CompletableFuture.completedFuture(current);
+        }
+        if (relogin != null && reloginStale == stale)
+            return relogin;
+
+        CompletableFuture<Token> login = HTTPClient.login_async(username, password).thenApply(fresh -> {
+            synchronized (this) {
+                if (fresh.isEmpty()) {
+                    this.token = null;
+                    SessionStore store = this.sessionStore;
+                    if (store != null)
+                        store.remove(hostname, port, username);
+                    throw new RuntimeException("Not authenticated");
+                }
+                saveSession(fresh.get());
+                return fresh.get();
+            }
+        });
+        relogin = login;
+        reloginStale = stale;
+        // A failed login is not shared with later callers, which try again
+        login.whenComplete((fresh, e) -> {
+            synchronized (this) {
+                if (relogin == login)
+                    relogin = null;
+            }
+        });
+        return login;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private boolean loadSession() {
+        SessionStore store = this.sessionStore;
+        if (store == null)
+            return false;
+
+        Optional<Token> stored = store.load(hostname, port, username, password);
+        stored.ifPresent(token -> this.token = token);
+        return stored.isPresent();
+    }
+
+    private void saveSession(Token token) {
+        this.token = token;
+        SessionStore store = this.sessionStore;
+        if (store != null)
+            store.save(hostname, port, username, password, token);
+    }
+
+    /**
+     * Forgets what is known of a game: its cached state, and the request in flight for it, which later calls do not share
+     */
+    private void invalidate(int gameId) {
+        gameRequests.remove(gameId);
+        GameCache cache = this.gameCache;
+        if (cache != null)
+            cache.invalidate(gameId);
     }
 }
@@ -0,0 +1,916 @@
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes mine probabilities for the unknown cells of a board and picks the safest one to swipe.
+ * <p>
+ * The unknown cells next to a clue are split into independent components, those linked through shared clues.
+ * The valid mine configurations of each component are enumerated in parallel on a fork-join pool, and the
+ * results of all components are weighted by the ways the remaining mines can be spread over the cells that
+ * touch no clue. Components larger than the exact limit are sampled instead, and every decision is bounded
+ * by a time budget, past which the probabilities found so far are used.
+ */
+public class ProbabilityEngine {
+
+    // Distribution tails below this fraction of the peak are dropped when convolving components
+    private static final double TRIM = 1e-30;
+    private static final int SAMPLE_SPLIT = 256;
+    // Past this amount of components the exact combination is replaced by a saddle point approximation
+    private static final int EXACT_COMBINE_LIMIT = 256;
+
+    private final ForkJoinPool pool;
+    private final int exactLimit;
+    private final int samples;
+    private final long budgetNanos;
+    private final long seed;
+
+    /**
+     * Creates a probability engine on the common fork-join pool that enumerates components
+     * of up to 48 cells, samples 20000 configurations of larger ones, and decides within one second
+     */
+    public ProbabilityEngine() {
+        this(ForkJoinPool.commonPool(), 48, 20000, Duration.ofSeconds(1), 0);
+    }
+
+    /**
+     * Creates a probability engine
+     *
+     * @param pool       the pool to run enumerations and sampling on
+     * @param exactLimit the largest component, in cells, whose configurations are all enumerated
+     * @param samples    the amount of configurations sampled for larger components
+     * @param budget     the time budget for each decision
+     * @param seed       the seed of the sampling, so decisions are reproducible
+     */
+    public ProbabilityEngine(ForkJoinPool pool, int exactLimit, int samples, Duration budget, long seed) {
+        if (exactLimit < 1 || samples < 1 || budget.isNegative())
+            throw new IllegalArgumentException("Engine limits must be positive");
+        this.pool = pool;
+        this.exactLimit = exactLimit;
+        this.samples = samples;
+        this.budgetNanos = budget.toNanos();
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the safest cell to swipe in the game
+     *
+     * @param game the game
+     * @return the guess, or null if no cell is left unknown
+     */
+    public Guess guess(Game game) {
+        return guess(game.get_board(), game.get_mines_count());
+    }
+
+    /**
+     * Returns the safest cell to swipe in the board
+     * If the time budget runs out before any mine configuration is found, the guess is an approximate one with
+     * the mine density of the unknown cells. Throws an IllegalStateException if no mine configuration agrees
+     * with the board.
+     *
+     * @param board the board
+     * @param mines the total amount of mines in the game
+     * @return the guess, or null if no cell is left unknown
+     */
+    public Guess guess(Board board, int mines) {
+        Frontier frontier = new Frontier(board);
+        if (frontier.unknown == 0)
+            return null;
+
+        int remaining = mines - frontier.knownMines;
+        int outside = frontier.unknown - frontier.vars;
+        Component[] components = frontier.components();
+
+        // The board scan is linear, the budget bounds the search that follows it
+        long deadline = System.nanoTime() + budgetNanos;
+
+        // Enumerate or sample every component in parallel
+        Counts[] counts = new Counts[components.length];
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                RecursiveTask<?>[] tasks = new RecursiveTask<?>[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    Component component = components[i];
+                    tasks[i] = component.size <= exactLimit
+                            ? new ExactTask(component, new State(component), 0, splitDepth(component), remaining, deadline)
+                            : new SampleTask(component, samples, new SplittableRandom(seed + i), density(remaining, frontier.unknown), remaining, deadline);
+                }
+                invokeAll(tasks);
+                for (int i = 0; i < components.length; i++)
+                    counts[i] = (Counts) tasks[i].join();
+            }
+        });
+
+        boolean exact = true;
+        for (Counts count : counts)
+            exact &= count.exact;
+
+        // Weight each component's amount of mines k by the ways to place the other mines, as log g[i][k]
+        double[][] logG = new double[components.length][];
+        double outsideProbability;
+        if (components.length <= EXACT_COMBINE_LIMIT) {
+            Dist[] dists = new Dist[components.length];
+            for (int i = 0; i < components.length; i++)
+                dists[i] = counts[i].dist(Math.round(components[i].size * density(remaining, frontier.unknown)));
+
+            double[] logWeights = logWeights(remaining, outside, frontier.vars);
+            combine(dists, counts, 0, dists.length, Dist.ONE, logWeights, logG);
+            outsideProbability = outsideProbability(dists, logWeights, remaining, outside);
+        } else {
+            // Too many components to convolve within budget, tilt each one by the saddle point mine ratio
+            exact = false;
+            double density = density(remaining, frontier.unknown);
+            double t = saddlePoint(counts, density, remaining, outside);
+            for (int i = 0; i < components.length; i++) {
+                logG[i] = new double[counts[i].size + 1];
+                for (int k = 0; k < logG[i].length; k++)
+                    logG[i][k] = t * k;
+            }
+            outsideProbability = outside > 0
+                    ? Math.max(0, Math.min(1, (remaining - expectedMines(counts, density, t)) / outside))
+                    : Double.NaN;
+        }
+
+        // Pick the frontier cell least likely to be a mine
+        int best = -1;
+        double bestProbability = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < components.length; i++) {
+            double[] probabilities = counts[i].probabilities(logG[i]);
+            if (probabilities == null)
+                continue;
+            for (int v = 0; v < probabilities.length; v++) {
+                if (probabilities[v] < bestProbability) {
+                    bestProbability = probabilities[v];
+                    best = components[i].cells[v];
+                }
+            }
+        }
+
+        // Compare with the cells that touch no clue, which all share the same probability
+        if (outside > 0 && outsideProbability < bestProbability) {
+            bestProbability = Math.max(0, outsideProbability);
+            best = frontier.firstOutside();
+        }
+
+        if (best == -1 || Double.isNaN(bestProbability)) {
+            if (exact)
+                throw new IllegalStateException("No mine configuration agrees with the board");
+            // The budget ran out before any configuration was found, fall back to the density of the unknown cells
+            bestProbability = density(remaining, frontier.unknown);
+            best = outside > 0 ? frontier.firstOutside() : components[0].cells[0];
+        }
+
+        return new Guess(best / board.getCols(), best % board.getCols(), bestProbability, exact);
+    }
+
+    private int splitDepth(Component component) {
+        if (component.size < 16)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(pool.getParallelism()) + 2;
+    }
+
+    private static double density(int remaining, int unknown) {
+        return Math.max(0, Math.min(1, (double) remaining / unknown));
+    }
+
+    /**
+     * Returns, for each amount F of mines on the frontier, the log of the amount of ways to place the
+     * other remaining mines on the cells outside it
+     */
+    private static double[] logWeights(int remaining, int outside, int vars) {
+        double[] log = new double[vars + 1];
+        for (int f = 0; f <= vars; f++) {
+            int rest = remaining - f;
+            log[f] = rest < 0 || rest > outside ? Double.NEGATIVE_INFINITY : logChoose(outside, rest);
+        }
+        return log;
+    }
+
+    /**
+     * Computes for each component i the log weight logG[i][k] of it holding k mines, given the distribution
+     * of mines over all the other components
+     */
+    private static void combine(Dist[] dists, Counts[] counts, int from, int to, Dist others, double[] logWeights, double[][] logG) {
+        if (to - from == 1) {
+            double[] log = new double[counts[from].size + 1];
+            for (int k = 0; k < log.length; k++) {
+                double max = Double.NEGATIVE_INFINITY;
+                for (int j = 0; j < others.p.length; j++) {
+                    int f = k + others.offset + j;
+                    if (f < logWeights.length && others.p[j] > 0)
+                        max = Math.max(max, Math.log(others.p[j]) + logWeights[f]);
+                }
+                double sum = 0;
+                for (int j = 0; j < others.p.length && max > Double.NEGATIVE_INFINITY; j++) {
+                    int f = k + others.offset + j;
+                    if (f < logWeights.length && others.p[j] > 0)
+                        sum += Math.exp(Math.log(others.p[j]) + logWeights[f] - max);
+                }
+                log[k] = max + Math.log(sum);
+            }
+            logG[from] = log;
+            return;
+        }
+        if (to - from < 1)
+            return;
+
+        int mid = (from + to) >>> 1;
+        Dist left = Dist.ONE;
+        for (int i = from; i < mid; i++)
+            left = left.convolve(dists[i]);
+        Dist right = Dist.ONE;
+        for (int i = mid; i < to; i++)
+            right = right.convolve(dists[i]);
+
+        combine(dists, counts, from, mid, others.convolve(right), logWeights, logG);
+        combine(dists, counts, mid, to, others.convolve(left), logWeights, logG);
+    }
+
+    /**
+     * Returns the mine probability of the cells that touch no clue, given the distribution of all components
+     */
+    private static double outsideProbability(Dist[] dists, double[] logWeights, int remaining, int outside) {
+        if (outside == 0)
+            return Double.NaN;
+
+        Dist all = Dist.ONE;
+        for (Dist dist : dists)
+            all = all.convolve(dist);
+
+        double max = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < all.p.length; j++) {
+            int f = all.offset + j;
+            if (f < logWeights.length && all.p[j] > 0)
+                max = Math.max(max, Math.log(all.p[j]) + logWeights[f]);
+        }
+        double z = 0;
+        double expected = 0;
+        for (int j = 0; j < all.p.length && max > Double.NEGATIVE_INFINITY; j++) {
+            int f = all.offset + j;
+            if (f < logWeights.length && all.p[j] > 0) {
+                double w = Math.exp(Math.log(all.p[j]) + logWeights[f] - max);
+                z += w;
+                expected += w * (remaining - f);
+            }
+        }
+        return z > 0 ? expected / z / outside : Double.NaN;
+    }
+
+    /**
+     * Finds the log mine odds t at which placing one more mine on the frontier instead of outside it
+     * is as likely as the expected amount of frontier mines implies, by bisection.
+     * With many components each one then holds k mines with weight e^(t k).
+     */
+    private static double saddlePoint(Counts[] counts, double density, int remaining, int outside) {
+        double low = -50;
+        double high = 50;
+        for (int i = 0; i < 100; i++) {
+            double t = (low + high) / 2;
+            double f = expectedMines(counts, density, t);
+            double rest = remaining - f;
+            double target = rest <= 0 ? Double.NEGATIVE_INFINITY : Math.log(rest / (outside - rest + 1));
+            if (t > target)
+                high = t;
+            else
+                low = t;
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * Returns the expected amount of mines on the frontier when each component is tilted by e^(t k).
+     * Components without any configuration found are assumed to have the average density.
+     */
+    private static double expectedMines(Counts[] counts, double density, double t) {
+        double expected = 0;
+        for (Counts count : counts) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < count.total.length; k++) {
+                if (count.total[k] > 0)
+                    max = Math.max(max, Math.log(count.total[k]) + t * k);
+            }
+            if (max == Double.NEGATIVE_INFINITY) {
+                expected += count.size * density;
+                continue;
+            }
+            double z = 0;
+            double sum = 0;
+            for (int k = 0; k < count.total.length; k++) {
+                if (count.total[k] > 0) {
+                    double w = Math.exp(Math.log(count.total[k]) + t * k - max);
+                    z += w;
+                    sum += w * k;
+                }
+            }
+            expected += sum / z;
+        }
+        return expected;
+    }
+
+    private static double logChoose(int n, int k) {
+        return logFactorial(n) - logFactorial(k) - logFactorial(n - k);
+    }
+
+    private static double logFactorial(int n) {
+        if (n < 16) {
+            double result = 0;
+            for (int i = 2; i <= n; i++)
+                result += Math.log(i);
+            return result;
+        }
+        // Stirling series
+        double x = n;
+        return x * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI * x) + 1 / (12 * x) - 1 / (360 * x * x * x);
+    }
+
+    /**
+     * A distribution over amounts of mines, starting at an offset, with negligible tails trimmed
+     */
+    private static class Dist {
+        static final Dist ONE = new Dist(0, new double[]{1});
+
+        final int offset;
+        final double[] p;
+
+        Dist(int offset, double[] p) {
+            this.offset = offset;
+            this.p = p;
+        }
+
+        Dist convolve(Dist other) {
+            double[] result = new double[p.length + other.p.length - 1];
+            for (int i = 0; i < p.length; i++) {
+                if (p[i] == 0)
+                    continue;
+                for (int j = 0; j < other.p.length; j++)
+                    result[i + j] += p[i] * other.p[j];
+            }
+            return trim(offset + other.offset, result);
+        }
+
+        static Dist trim(int offset, double[] p) {
+            double max = 0;
+            for (double v : p)
+                max = Math.max(max, v);
+            if (max == 0)
+                return new Dist(offset, new double[]{0});
+
+            int from = 0;
+            int to = p.length;
+            while (p[from] < max * TRIM)
+                from++;
+            while (p[to - 1] < max * TRIM)
+                to--;
+            double[] trimmed = new double[to - from];
+            for (int i = from; i < to; i++)
+                trimmed[i - from] = p[i] / max;
+            return new Dist(offset + from, trimmed);
+        }
+    }
+
+    /**
+     * The unknown cells of a board and the constraints of the clues around them
+     */
+    private static class Frontier {
+        final Board board;
+        final byte[] cells;
+        final int rows;
+        final int cols;
+        final int[] varOf;
+        final IntArray varCells = new IntArray();
+        final IntArray conStart = new IntArray();
+        final IntArray conVars = new IntArray();
+        final IntArray conRemaining = new IntArray();
+        int knownMines;
+        int unknown;
+        int vars;
+
+        Frontier(Board board) {
+            this.board = board;
+            this.cells = board.cells();
+            this.rows = board.getRows();
+            this.cols = board.getCols();
+            this.varOf = new int[cells.length];
+            Arrays.fill(varOf, -1);
+
+            for (int i = 0; i < cells.length; i++) {
+                byte code = cells[i];
+                if (code == Board.FLAGGED || code == Board.MINE) {
+                    knownMines++;
+                } else if (isUnknown(code)) {
+                    unknown++;
+                } else if (Board.isCleared(code)) {
+                    addConstraint(i, code);
+                }
+            }
+            conStart.add(conVars.size);
+            vars = varCells.size;
+        }
+
+        private void addConstraint(int cell, byte clue) {
+            int row = cell / cols;
+            int col = cell % cols;
+            int start = conVars.size;
+            int mines = 0;
+            for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+                for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                    int neighbour = r * cols + c;
+                    byte code = cells[neighbour];
+                    if (code == Board.FLAGGED || code == Board.MINE) {
+                        mines++;
+                    } else if (isUnknown(code)) {
+                        if (varOf[neighbour] == -1) {
+                            varOf[neighbour] = varCells.size;
+                            varCells.add(neighbour);
+                        }
+                        conVars.add(varOf[neighbour]);
+                    }
+                }
+            }
+            if (conVars.size > start) {
+                conStart.add(start);
+                conRemaining.add(clue - mines);
+            }
+        }
+
+        int constraints() {
+            return conRemaining.size;
+        }
+
+        int firstOutside() {
+            for (int i = 0; i < cells.length; i++) {
+                if (isUnknown(cells[i]) && varOf[i] == -1)
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Splits the frontier into the components of cells linked through shared clues
+         */
+        Component[] components() {
+            int[] parent = new int[vars];
+            for (int v = 0; v < vars; v++)
+                parent[v] = v;
+            for (int c = 0; c < constraints(); c++) {
+                int first = find(parent, conVars.get(conStart.get(c)));
+                for (int j = conStart.get(c) + 1; j < conStart.get(c + 1); j++) {
+                    int root = find(parent, conVars.get(j));
+                    if (root != first)
+                        parent[root] = first;
+                }
+            }
+
+            int[] componentOf = new int[vars];
+            int[] local = new int[vars];
+            int[] sizes = new int[vars];
+            int count = 0;
+            int[] index = new int[vars];
+            Arrays.fill(index, -1);
+            for (int v = 0; v < vars; v++) {
+                int root = find(parent, v);
+                if (index[root] == -1)
+                    index[root] = count++;
+                componentOf[v] = index[root];
+                local[v] = sizes[componentOf[v]]++;
+            }
+
+            int[] constraintCounts = new int[count];
+            int[] entryCounts = new int[count];
+            for (int c = 0; c < constraints(); c++) {
+                int component = componentOf[conVars.get(conStart.get(c))];
+                constraintCounts[component]++;
+                entryCounts[component] += conStart.get(c + 1) - conStart.get(c);
+            }
+
+            Component[] components = new Component[count];
+            for (int i = 0; i < count; i++)
+                components[i] = new Component(sizes[i], constraintCounts[i], entryCounts[i]);
+            for (int v = 0; v < vars; v++)
+                components[componentOf[v]].cells[local[v]] = varCells.get(v);
+            for (int c = 0; c < constraints(); c++) {
+                Component component = components[componentOf[conVars.get(conStart.get(c))]];
+                component.addConstraint(conRemaining.get(c), conVars.a, conStart.get(c), conStart.get(c + 1), local);
+            }
+            for (Component component : components)
+                component.index();
+            return components;
+        }
+
+        private static int find(int[] parent, int v) {
+            while (parent[v] != v) {
+                parent[v] = parent[parent[v]];
+                v = parent[v];
+            }
+            return v;
+        }
+    }
+
+    /**
+     * A set of frontier cells linked through shared clues, with the constraints over them in flat arrays
+     */
+    private static class Component {
+        final int size;
+        final int[] cells;
+        final int[] conStart;
+        final int[] conVars;
+        final int[] conRemaining;
+        int[] varStart;
+        int[] varCons;
+        int[] order;
+        private int constraints;
+
+        Component(int size, int constraints, int entries) {
+            this.size = size;
+            this.cells = new int[size];
+            this.conStart = new int[constraints + 1];
+            this.conVars = new int[entries];
+            this.conRemaining = new int[constraints];
+        }
+
+        void addConstraint(int remaining, int[] vars, int from, int to, int[] local) {
+            int start = conStart[constraints];
+            for (int j = from; j < to; j++)
+                conVars[start + j - from] = local[vars[j]];
+            conRemaining[constraints] = remaining;
+            conStart[++constraints] = start + to - from;
+        }
+
+        /**
+         * Builds the cell to constraint index and a breadth-first cell order,
+         * so that constraints are closed as early as possible while enumerating
+         */
+        void index() {
+            varStart = new int[size + 1];
+            for (int v : conVars)
+                varStart[v + 1]++;
+            for (int v = 0; v < size; v++)
+                varStart[v + 1] += varStart[v];
+            varCons = new int[conVars.length];
+            int[] fill = Arrays.copyOf(varStart, size);
+            for (int c = 0; c < constraints; c++) {
+                for (int j = conStart[c]; j < conStart[c + 1]; j++)
+                    varCons[fill[conVars[j]]++] = c;
+            }
+
+            order = new int[size];
+            boolean[] seen = new boolean[size];
+            int head = 0;
+            int tail = 0;
+            order[tail++] = 0;
+            seen[0] = true;
+            while (head < tail) {
+                int v = order[head++];
+                for (int j = varStart[v]; j < varStart[v + 1]; j++) {
+                    int c = varCons[j];
+                    for (int k = conStart[c]; k < conStart[c + 1]; k++) {
+                        int u = conVars[k];
+                        if (!seen[u]) {
+                            seen[u] = true;
+                            order[tail++] = u;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A partial mine assignment of a component, with per constraint tallies
+     */
+    private static class State {
+        final Component component;
+        final byte[] value;
+        final int[] conMines;
+        final int[] conOpen;
+        int mines;
+
+        State(Component component) {
+            this.component = component;
+            this.value = new byte[component.size];
+            this.conMines = new int[component.conRemaining.length];
+            this.conOpen = new int[component.conRemaining.length];
+            reset();
+        }
+
+        private State(State other) {
+            this.component = other.component;
+            this.value = other.value.clone();
+            this.conMines = other.conMines.clone();
+            this.conOpen = other.conOpen.clone();
+            this.mines = other.mines;
+        }
+
+        State copy() {
+            return new State(this);
+        }
+
+        void reset() {
+            Arrays.fill(value, (byte) 0);
+            Arrays.fill(conMines, 0);
+            for (int c = 0; c < conOpen.length; c++)
+                conOpen[c] = component.conStart[c + 1] - component.conStart[c];
+            mines = 0;
+        }
+
+        /**
+         * Assigns a cell and returns false if that breaks a constraint or the mine cap.
+         * The assignment is applied either way and must be undone with {@link #unassign(int, int)}.
+         */
+        boolean assign(int v, int mine, int cap) {
+            value[v] = (byte) mine;
+            mines += mine;
+            boolean ok = mines <= cap;
+            Component cp = component;
+            for (int j = cp.varStart[v]; j < cp.varStart[v + 1]; j++) {
+                int c = cp.varCons[j];
+                conOpen[c]--;
+                conMines[c] += mine;
+                if (conMines[c] > cp.conRemaining[c] || conMines[c] + conOpen[c] < cp.conRemaining[c])
+                    ok = false;
+            }
+            return ok;
+        }
+
+        void unassign(int v, int mine) {
+            value[v] = 0;
+            mines -= mine;
+            Component cp = component;
+            for (int j = cp.varStart[v]; j < cp.varStart[v + 1]; j++) {
+                int c = cp.varCons[j];
+                conOpen[c]++;
+                conMines[c] -= mine;
+            }
+        }
+    }
+
+    /**
+     * Configuration counts of a component: per amount of mines k, and per cell either per k or in total
+     */
+    private static class Counts {
+        final int size;
+        final double[] total;
+        final double[] perCell;
+        final boolean byMines;
+        boolean exact = true;
+
+        Counts(int size, boolean byMines) {
+            this.size = size;
+            this.byMines = byMines;
+            this.total = new double[size + 1];
+            this.perCell = new double[byMines ? size * (size + 1) : size];
+        }
+
+        void add(Counts other) {
+            for (int i = 0; i < total.length; i++)
+                total[i] += other.total[i];
+            for (int i = 0; i < perCell.length; i++)
+                perCell[i] += other.perCell[i];
+            exact &= other.exact;
+        }
+
+        void record(State state) {
+            int k = state.mines;
+            total[k]++;
+            for (int v = 0; v < size; v++) {
+                if (state.value[v] != 0)
+                    perCell[byMines ? v * (size + 1) + k : v]++;
+            }
+        }
+
+        Dist dist(long fallback) {
+            for (double t : total) {
+                if (t > 0)
+                    return Dist.trim(0, total.clone());
+            }
+            // Nothing was found within the budget, assume the average density
+            return new Dist((int) fallback, new double[]{1});
+        }
+
+        /**
+         * Returns the mine probability of each cell given the log weight of each amount of mines,
+         * or null if no configuration was found
+         */
+        double[] probabilities(double[] logG) {
+            double max = Double.NEGATIVE_INFINITY;
+            double found = 0;
+            for (int k = 0; k < total.length; k++) {
+                if (total[k] > 0) {
+                    max = Math.max(max, logG[k]);
+                    found += total[k];
+                }
+            }
+            if (found == 0 || max == Double.NEGATIVE_INFINITY)
+                return null;
+
+            double[] g = new double[total.length];
+            double z = 0;
+            for (int k = 0; k < total.length; k++) {
+                g[k] = Math.exp(logG[k] - max);
+                z += total[k] * g[k];
+            }
+
+            double[] probabilities = new double[size];
+            for (int v = 0; v < size; v++) {
+                if (byMines) {
+                    double sum = 0;
+                    for (int k = 0; k <= size; k++)
+                        sum += perCell[v * (size + 1) + k] * g[k];
+                    probabilities[v] = sum / z;
+                } else {
+                    // Sampled counts are not split per amount of mines, use the plain frequency
+                    probabilities[v] = perCell[v] / found;
+                }
+            }
+            return probabilities;
+        }
+    }
+
+    /**
+     * Enumerates every valid configuration of a component, forking the first levels of the search
+     */
+    private static class ExactTask extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+
+        private final Component component;
+        private final State state;
+        private final int position;
+        private final int splitDepth;
+        private final int cap;
+        private final long deadline;
+        private Counts counts;
+        private int steps;
+
+        ExactTask(Component component, State state, int position, int splitDepth, int cap, long deadline) {
+            this.component = component;
+            this.state = state;
+            this.position = position;
+            this.splitDepth = splitDepth;
+            this.cap = cap;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Counts compute() {
+            counts = new Counts(component.size, true);
+            if (System.nanoTime() > deadline) {
+                counts.exact = false;
+                return counts;
+            }
+            if (position < splitDepth && position < component.size) {
+                int v = component.order[position];
+                ExactTask[] branches = new ExactTask[2];
+                int forked = 0;
+                for (int mine = 0; mine <= 1; mine++) {
+                    State branch = state.copy();
+                    if (branch.assign(v, mine, cap))
+                        branches[forked++] = new ExactTask(component, branch, position + 1, splitDepth, cap, deadline);
+                }
+                if (forked == 2)
+                    invokeAll(branches[0], branches[1]);
+                else if (forked == 1)
+                    branches[0].invoke();
+                for (int i = 0; i < forked; i++)
+                    counts.add(branches[i].join());
+                return counts;
+            }
+
+            enumerate(position);
+            return counts;
+        }
+
+        private void enumerate(int position) {
+            if (!counts.exact)
+                return;
+            if ((++steps & 0xFFF) == 0 && System.nanoTime() > deadline) {
+                counts.exact = false;
+                return;
+            }
+            if (position == component.size) {
+                counts.record(state);
+                return;
+            }
+
+            int v = component.order[position];
+            for (int mine = 0; mine <= 1; mine++) {
+                if (state.assign(v, mine, cap))
+                    enumerate(position + 1);
+                state.unassign(v, mine);
+            }
+        }
+    }
+
+    /**
+     * Samples valid configurations of a large component with randomized depth-first searches
+     */
+    private static class SampleTask extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+
+        private final Component component;
+        private final int samples;
+        private final SplittableRandom random;
+        private final double density;
+        private final int cap;
+        private final long deadline;
+
+        SampleTask(Component component, int samples, SplittableRandom random, double density, int cap, long deadline) {
+            this.component = component;
+            this.samples = samples;
+            this.random = random;
+            this.density = density;
+            this.cap = cap;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (samples > SAMPLE_SPLIT) {
+                int half = samples / 2;
+                SampleTask left = new SampleTask(component, half, random.split(), density, cap, deadline);
+                SampleTask right = new SampleTask(component, samples - half, random.split(), density, cap, deadline);
+                invokeAll(left, right);
+                Counts counts = left.join();
+                counts.add(right.join());
+                return counts;
+            }
+
+            Counts counts = new Counts(component.size, false);
+            counts.exact = false;
+            State state = new State(component);
+            int[] first = new int[component.size];
+            byte[] tried = new byte[component.size];
+            for (int s = 0; s < samples && System.nanoTime() < deadline; s++) {
+                state.reset();
+                if (sample(state, first, tried))
+                    counts.record(state);
+            }
+            return counts;
+        }
+
+        /**
+         * Runs one randomized search with a bounded amount of backtracking
+         */
+        private boolean sample(State state, int[] first, byte[] tried) {
+            int size = component.size;
+            int backtracks = 8 * size;
+            int position = 0;
+            int steps = 0;
+            tried[0] = 0;
+            while (position < size) {
+                if ((++steps & 0xFFF) == 0 && System.nanoTime() > deadline)
+                    return false;
+                int v = component.order[position];
+                if (tried[position] < 2) {
+                    int mine;
+                    if (tried[position] == 0) {
+                        mine = random.nextDouble() < density ? 1 : 0;
+                        first[position] = mine;
+                    } else {
+                        mine = 1 - first[position];
+                    }
+                    tried[position]++;
+                    if (state.assign(v, mine, cap)) {
+                        if (++position < size)
+                            tried[position] = 0;
+                    } else {
+                        state.unassign(v, mine);
+                    }
+                    continue;
+                }
+
+                // Both values failed here, undo the previous cell
+                if (--position < 0 || --backtracks < 0)
+                    return false;
+                int previous = component.order[position];
+                state.unassign(previous, state.value[previous]);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A growable int array, so collecting the frontier does not box each cell
+     */
+    private static class IntArray {
+        int[] a = new int[64];
+        int size;
+
+        void add(int value) {
+            if (size == a.length)
+                a = Arrays.copyOf(a, size * 2);
+            a[size++] = value;
+        }
+
+        int get(int i) {
+            return a[i];
+        }
+    }
+
+    private static boolean isUnknown(byte code) {
+        return code == Board.UNEXPLORED || code == Board.MARKED;
+    }
+}
@@ -0,0 +1,31 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event spanning the network time of one request to the Minesweeper API
+ */
+@Name("minesweeper.Request")
+@Label("Minesweeper Request")
+@Category("Minesweeper")
+@Description("A request to the Minesweeper API, from sending it until its response is received")
+class RequestEvent extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Status")
+    @Description("The HTTP status code, or 0 if the request failed")
+    int status;
+
+    @Label("Bytes Sent")
+    @DataAmount
+    long bytesSent;
+
+    @Label("Bytes Received")
+    @DataAmount
+    long bytesReceived;
+}
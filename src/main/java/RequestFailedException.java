@@ -0,0 +1,33 @@
+/**
+ * Thrown when a request to the Minesweeper API fails, e.g. because the server cannot be reached
+ * or its response cannot be parsed. Subclasses tell timeouts, rejections and an open circuit apart.
+ */
+public class RequestFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Endpoint endpoint;
+
+    public RequestFailedException(Endpoint endpoint, String message) {
+        super(message);
+        this.endpoint = endpoint;
+    }
+
+    public RequestFailedException(Endpoint endpoint, String message, Throwable cause) {
+        super(message, cause);
+        this.endpoint = endpoint;
+    }
+
+    public RequestFailedException(Endpoint endpoint, Throwable cause) {
+        this(endpoint, "Request failed: " + cause, cause);
+    }
+
+    /**
+     * Returns the endpoint of the failed request
+     *
+     * @return the endpoint, or null if unknown
+     */
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+}
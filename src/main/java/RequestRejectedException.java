@@ -0,0 +1,27 @@
+/**
+ * Thrown when the Minesweeper API server answers a request with an error status
+ */
+public class RequestRejectedException extends RequestFailedException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    public RequestRejectedException(Endpoint endpoint, int status) {
+        this(endpoint, status, "Request rejected with status " + status);
+    }
+
+    protected RequestRejectedException(Endpoint endpoint, int status, String message) {
+        super(endpoint, message);
+        this.status = status;
+    }
+
+    /**
+     * Returns the HTTP status code of the response
+     *
+     * @return the status code
+     */
+    public int getStatus() {
+        return status;
+    }
+}
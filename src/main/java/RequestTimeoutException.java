@@ -0,0 +1,11 @@
+/**
+ * Thrown when the Minesweeper API server does not answer a request in time
+ */
+public class RequestTimeoutException extends RequestFailedException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RequestTimeoutException(Endpoint endpoint, Throwable cause) {
+        super(endpoint, "Request timed out", cause);
+    }
+}
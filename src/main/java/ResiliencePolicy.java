@@ -0,0 +1,101 @@
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How {@link HTTPClient} copes with a failing or slow Minesweeper API server.
+ * <p>
+ * Idempotent requests (listing and getting games) that fail to connect, time out or get a 502, 503 or 504
+ * are retried after an exponential backoff with full jitter, so clients that failed together do not retry
+ * together. A circuit breaker per host and thresholds fails every request fast once enough consecutive
+ * requests failed, until a single probe succeeds after the open duration. Optionally, an idempotent request
+ * still running past a percentile of its endpoint latency is hedged with a second identical request, and the
+ * first response that is not a server error wins.
+ */
+public class ResiliencePolicy {
+
+    // Latencies recorded before the hedging percentile is trusted
+    static final long HEDGE_MIN_SAMPLES = 20;
+
+    private final int maxRetries;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final double hedgePercentile;
+
+    /**
+     * Creates a policy that retries twice from a 50 ms backoff up to 1 second, opens the circuit
+     * for 5 seconds after 5 consecutive failures, and does not hedge
+     */
+    public ResiliencePolicy() {
+        this(2, Duration.ofMillis(50), Duration.ofSeconds(1), 5, Duration.ofSeconds(5), 0);
+    }
+
+    /**
+     * Creates a policy
+     *
+     * @param maxRetries       the retries of an idempotent request after its first attempt, 0 to never retry
+     * @param baseBackoff      the backoff bound before the first retry, doubled on each further retry
+     * @param maxBackoff       the largest backoff bound
+     * @param failureThreshold the consecutive failures that open the circuit, 0 to never open it
+     * @param openDuration     the time an open circuit fails requests before letting a probe through
+     * @param hedgePercentile  the latency percentile, between 0 and 100, past which an idempotent request
+     *                         is hedged, 0 to never hedge
+     */
+    public ResiliencePolicy(int maxRetries, Duration baseBackoff, Duration maxBackoff,
+                            int failureThreshold, Duration openDuration, double hedgePercentile) {
+        if (maxRetries < 0 || failureThreshold < 0 || hedgePercentile < 0 || hedgePercentile >= 100
+                || baseBackoff.isNegative() || maxBackoff.compareTo(baseBackoff) < 0 || openDuration.isNegative())
+            throw new IllegalArgumentException("Invalid resilience policy");
+        this.maxRetries = maxRetries;
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    /**
+     * Returns a policy that never retries, opens no circuit and does not hedge
+     *
+     * @return the policy
+     */
+    public static ResiliencePolicy none() {
+        return new ResiliencePolicy(0, Duration.ZERO, Duration.ZERO, 0, Duration.ZERO, 0);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    long getOpenNanos() {
+        return openNanos;
+    }
+
+    /**
+     * Returns a random backoff before the given retry, between 0 and the bound of that retry
+     *
+     * @param retry the retry, starting at 0
+     */
+    long backoffNanos(int retry) {
+        long bound = baseBackoffNanos << Math.min(retry, 30);
+        if (bound <= 0 || bound > maxBackoffNanos)
+            bound = maxBackoffNanos;
+        return bound == 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /**
+     * Returns true if a response with the given status is worth retrying
+     */
+    static boolean isRetryable(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a script of commands, one per line, with a logged-in client.
+ * <p>
+ * The commands take the arguments of the matching command line options:
+ * <pre>
+ * new 9,9,10
+ * list
+ * get 12
+ * mark 12,0,0
+ * flag 12,1,0
+ * swipe 12,4,4
+ * </pre>
+ * Empty lines and lines starting with # are skipped. Commands for the same game run in the order of the script,
+ * while commands for other games, new games and lists run at the same time, with at most a fixed amount of
+ * commands pending. An action is sent as is, without fetching the game before or after it, so a game costs one
+ * request per action. Each result is printed as soon as its command completes, as the line number, the command
+ * and its result, and a failed command is printed and counted without stopping the script.
+ */
+public class ScriptRunner {
+
+    private final MinesweeperClient client;
+    private final int concurrency;
+
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Creates a new script runner
+     *
+     * @param client      the logged-in client
+     * @param concurrency the maximum amount of commands pending at once
+     */
+    public ScriptRunner(MinesweeperClient client, int concurrency) {
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("Concurrency must be positive");
+        this.client = client;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Runs every command of a script and waits for the last one to complete
+     *
+     * @param script the script
+     * @param out    where to print the results
+     * @throws IOException if the script cannot be read
+     */
+    public void run(BufferedReader script, PrintStream out) throws IOException {
+        Semaphore pending = new Semaphore(concurrency);
+        // The last command of each game, which the next command of the game runs after
+        ConcurrentHashMap<Integer, CompletableFuture<Void>> games = new ConcurrentHashMap<>();
+        try {
+            String line;
+            for (int number = 1; (line = script.readLine()) != null; number++) {
+                String command = line.trim();
+                if (command.isEmpty() || command.startsWith("#"))
+                    continue;
+
+                String[] words = command.split("\\s+", 2);
+                int[] args;
+                try {
+                    args = parseArgs(words[0], words.length > 1 ? words[1] : "");
+                } catch (IllegalArgumentException e) {
+                    print(out, number, command, null, e);
+                    continue;
+                }
+
+                pending.acquire();
+                int lineNumber = number;
+                CompletableFuture<Void> done;
+                if (words[0].equals("new") || words[0].equals("list")) {
+                    done = execute(out, lineNumber, command, words[0], args);
+                } else {
+                    int gameId = args[0];
+                    done = games.compute(gameId, (id, previous) -> previous == null
+                            ? execute(out, lineNumber, command, words[0], args)
+                            : previous.thenCompose(ignored -> execute(out, lineNumber, command, words[0], args)));
+                    done.whenComplete((ignored, e) -> games.remove(gameId, done));
+                }
+                done.whenComplete((ignored, e) -> pending.release());
+            }
+            // Wait for the commands still pending
+            pending.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Script interrupted", e);
+        }
+    }
+
+    /**
+     * Returns the numbers a command takes, checking there are as many as it needs
+     */
+    private static int[] parseArgs(String verb, String args) {
+        int expected;
+        switch (verb) {
+            case "list":
+                expected = 0;
+                break;
+            case "get":
+                expected = 1;
+                break;
+            case "new":
+            case "mark":
+            case "flag":
+            case "swipe":
+                expected = 3;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + verb);
+        }
+
+        String[] values = args.isEmpty() ? new String[0] : args.split(",");
+        if (values.length != expected)
+            throw new IllegalArgumentException(verb + " takes " + expected + " comma separated numbers");
+        int[] numbers = new int[expected];
+        for (int i = 0; i < expected; i++)
+            numbers[i] = Integer.parseInt(values[i].trim());
+        return numbers;
+    }
+
+    /**
+     * Runs a command and prints its result, completing normally whether it succeeded or not
+     */
+    private CompletableFuture<Void> execute(PrintStream out, int number, String command, String verb, int[] args) {
+        CompletableFuture<String> result;
+        try {
+            result = start(verb, args);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.handle((value, e) -> {
+            print(out, number, command, value, e);
+            return null;
+        });
+    }
+
+    private CompletableFuture<String> start(String verb, int[] args) {
+        switch (verb) {
+            case "list":
+                return client.list_games_async().thenApply(Arrays::toString);
+            case "new":
+                return client.new_game_async(args[0], args[1], args[2]).thenApply(ScriptRunner::describe);
+            case "get":
+                return client.get_game_async(args[0]).thenApply(ScriptRunner::describe);
+            case "mark":
+                return client.do_action_async(args[0], args[1], args[2], Action.MARK).thenApply(String::valueOf);
+            case "flag":
+                return client.do_action_async(args[0], args[1], args[2], Action.FLAG).thenApply(String::valueOf);
+            default:
+                return client.do_action_async(args[0], args[1], args[2], Action.SWIPE).thenApply(String::valueOf);
+        }
+    }
+
+    /**
+     * Describes a game by its id, status and mines, which does not need its board
+     */
+    private static String describe(Game game) {
+        return "game " + game.getId() + " " + game.get_status() + ", " + game.get_mines_count() + " mines";
+    }
+
+    private void print(PrintStream out, int number, String command, String result, Throwable failure) {
+        commands.incrementAndGet();
+        if (failure != null) {
+            failed.incrementAndGet();
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            result = "error: " + cause.getMessage();
+        }
+        out.println(number + " " + command + " -> " + result);
+    }
+
+    /**
+     * Returns the amount of commands run, including the failed ones
+     *
+     * @return the commands run
+     */
+    public long getCommands() {
+        return commands.get();
+    }
+
+    /**
+     * Returns the amount of commands that failed
+     *
+     * @return the failed commands
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+}
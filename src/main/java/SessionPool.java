@@ -0,0 +1,276 @@
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many logged-in users of one Minesweeper API server sharing a single transport.
+ * <p>
+ * Every user gets a {@link MinesweeperClient} view of its own, with its own token, while the HTTP client,
+ * its connections and the executor are shared by all of them, so the threads and sockets of the process do not
+ * grow with the amount of users. A view logs in on its first request, not when it is created.
+ * <p>
+ * Requests of all the users take turns for a limited amount of requests in flight: a user waiting for a turn
+ * is served before a user that was just served, however many requests either has waiting. Each user can also be
+ * limited to a rate of requests per second, with bursts of up to one second of requests.
+ * Users without requests for longer than the idle timeout are dropped from the pool; a view kept by a caller
+ * after that still works, and asking the pool for the user again gives a new view that logs in again.
+ * <pre>
+ * SessionPool pool = new SessionPool(host, port, new TransportConfig(), new ResiliencePolicy(), 64, 5, Duration.ofMinutes(10));
+ * MinesweeperClient alice = pool.session("alice", "secret");
+ * Game game = alice.new_game(9, 9, 10);
+ * </pre>
+ */
+public class SessionPool {
+
+    private final String hostname;
+    private final int port;
+    private final HTTPClient httpClient;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final double requestsPerSecond;
+    private final long idleNanos;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    // The sessions with requests waiting for a turn, in the order they get it, guarded by this
+    private final ArrayDeque<Session> ready = new ArrayDeque<>();
+    private int inFlight;
+    private volatile long nextSweep;
+
+    /**
+     * Creates a pool without limits on requests, dropping users idle for 10 minutes
+     *
+     * @param hostname  the hostname of the Minesweeper API server
+     * @param port      the port of the Minesweeper API server
+     * @param transport the HTTP version, timeouts, executor and compression shared by every user
+     */
+    public SessionPool(String hostname, int port, TransportConfig transport) {
+        this(hostname, port, transport, new ResiliencePolicy(), 0, 0, Duration.ofMinutes(10));
+    }
+
+    /**
+     * Creates a new pool
+     *
+     * @param hostname          the hostname of the Minesweeper API server
+     * @param port              the port of the Minesweeper API server
+     * @param transport         the HTTP version, timeouts, executor and compression shared by every user
+     * @param policy            how to retry, hedge and cut off failing requests
+     * @param maxInFlight       the most requests of all users in flight at once, 0 for no limit
+     * @param requestsPerSecond the most requests per second of each user, 0 for no limit
+     * @param idleTimeout       the time without requests after which a user is dropped
+     */
+    public SessionPool(String hostname, int port, TransportConfig transport, ResiliencePolicy policy,
+                       int maxInFlight, double requestsPerSecond, Duration idleTimeout) {
+        if (maxInFlight < 0 || requestsPerSecond < 0 || idleTimeout.isNegative())
+            throw new IllegalArgumentException("Session pool limits must not be negative");
+        this.hostname = hostname;
+        this.port = port;
+        this.httpClient = new HTTPClient(hostname, port, transport, policy);
+        this.executor = transport.getExecutor() != null ? transport.getExecutor() : ForkJoinPool.commonPool();
+        this.maxInFlight = maxInFlight;
+        this.requestsPerSecond = requestsPerSecond;
+        this.idleNanos = idleTimeout.toNanos();
+        this.nextSweep = System.nanoTime() + idleNanos;
+    }
+
+    /**
+     * Returns the client of a user, creating it if the user has none or it has a different password.
+     * The user logs in on the first request of the client.
+     *
+     * @param username the username
+     * @param password the password
+     * @return the client of the user
+     */
+    public MinesweeperClient session(String username, String password) {
+        long now = System.nanoTime();
+        if (now - nextSweep >= 0)
+            evictIdle();
+
+        Session session = sessions.compute(username, (name, existing) ->
+                existing != null && existing.password.equals(password) ? existing : new Session(name, password));
+        session.lastUsed = now;
+        return session.client;
+    }
+
+    /**
+     * Drops the users without requests waiting or in flight for longer than the idle timeout
+     *
+     * @return the amount of users dropped
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        nextSweep = now + Math.max(idleNanos / 2, TimeUnit.SECONDS.toNanos(1));
+        int evicted = 0;
+        for (String username : sessions.keySet()) {
+            Session before = sessions.get(username);
+            Session after = sessions.computeIfPresent(username, (name, session) -> session.isIdle(now) ? null : session);
+            if (before != null && after == null)
+                evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the amount of users in the pool
+     *
+     * @return the users
+     */
+    public int getSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the amount of requests of all users in flight
+     *
+     * @return the requests in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the amount of requests of all users waiting for their turn
+     *
+     * @return the waiting requests
+     */
+    public synchronized int getWaiting() {
+        int waiting = 0;
+        for (Session session : sessions.values())
+            waiting += session.waiting.size();
+        return waiting;
+    }
+
+    /**
+     * Gives turns to the sessions in the ready queue while requests may be in flight, returning the turns given.
+     * A session out of its rate goes to sleep until its next request is allowed; one with more requests waiting
+     * goes back to the end of the queue.
+     */
+    private List<CompletableFuture<Void>> dispatch() {
+        List<CompletableFuture<Void>> granted = null;
+        long now = System.nanoTime();
+        while ((maxInFlight == 0 || inFlight < maxInFlight) && !ready.isEmpty()) {
+            Session session = ready.poll();
+            session.queued = false;
+            long wait = session.take(now);
+            if (wait > 0) {
+                session.sleeping = true;
+                CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, executor).execute(() -> wake(session));
+                continue;
+            }
+
+            if (granted == null)
+                granted = new ArrayList<>();
+            granted.add(session.waiting.poll());
+            session.inFlight++;
+            inFlight++;
+            if (!session.waiting.isEmpty())
+                session.enqueue();
+        }
+        return granted == null ? List.of() : granted;
+    }
+
+    private void wake(Session session) {
+        List<CompletableFuture<Void>> granted;
+        synchronized (this) {
+            session.sleeping = false;
+            if (!session.waiting.isEmpty())
+                session.enqueue();
+            granted = dispatch();
+        }
+        grant(granted);
+    }
+
+    /**
+     * Starts the requests given a turn, outside the lock of the pool
+     */
+    private static void grant(List<CompletableFuture<Void>> granted) {
+        for (CompletableFuture<Void> turn : granted)
+            turn.complete(null);
+    }
+
+    /**
+     * A user of the pool: its client, its requests waiting for a turn and what is left of its rate
+     */
+    class Session {
+
+        final String password;
+        final MinesweeperClient client;
+        volatile long lastUsed = System.nanoTime();
+
+        // Guarded by the pool
+        private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private int inFlight;
+        private boolean queued;
+        private boolean sleeping;
+        private double tokens = Math.max(1, requestsPerSecond);
+        private long refilled = System.nanoTime();
+
+        Session(String username, String password) {
+            this.password = password;
+            this.client = new MinesweeperClient(httpClient, hostname, port, this);
+            this.client.setCredentials(username, password);
+        }
+
+        /**
+         * Returns a future completed when a request of the user may start. The request must be released once done.
+         */
+        CompletableFuture<Void> admit() {
+            CompletableFuture<Void> turn = new CompletableFuture<>();
+            List<CompletableFuture<Void>> granted;
+            synchronized (SessionPool.this) {
+                lastUsed = System.nanoTime();
+                waiting.add(turn);
+                if (!queued && !sleeping)
+                    enqueue();
+                granted = dispatch();
+            }
+            grant(granted);
+            return turn;
+        }
+
+        /**
+         * Ends a request of the user, giving its turn to the next one
+         */
+        void release() {
+            List<CompletableFuture<Void>> granted;
+            synchronized (SessionPool.this) {
+                lastUsed = System.nanoTime();
+                inFlight--;
+                SessionPool.this.inFlight--;
+                granted = dispatch();
+            }
+            grant(granted);
+        }
+
+        private void enqueue() {
+            ready.add(this);
+            queued = true;
+        }
+
+        /**
+         * Takes a request from the rate of the user, or returns the nanoseconds until one is allowed
+         */
+        private long take(long now) {
+            if (requestsPerSecond == 0)
+                return 0;
+            tokens = Math.min(Math.max(1, requestsPerSecond), tokens + (now - refilled) * requestsPerSecond / 1e9);
+            refilled = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) * 1e9 / requestsPerSecond);
+        }
+
+        private boolean isIdle(long now) {
+            synchronized (SessionPool.this) {
+                return waiting.isEmpty() && inFlight == 0 && now - lastUsed > idleNanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * A local file of user tokens per server and user, so a new process can skip the login request.
+ * The file and its directory are accessible only by their owner, and the file is replaced atomically on every change.
+ * <p>
+ * Each token is stored with a salted hash of the password it was obtained with, and is only handed out for
+ * that password, so a wrong password never reuses the session of the user.
+ */
+public class SessionStore {
+
+    private static final int HASH_ITERATIONS = 10000;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Path file;
+
+    /**
+     * Creates a session store in the user's home directory
+     */
+    public SessionStore() {
+        this(Paths.get(System.getProperty("user.home"), ".minesweeper-client", "sessions"));
+    }
+
+    /**
+     * Creates a session store in the given file
+     *
+     * @param file the file holding the tokens
+     */
+    public SessionStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the stored token of a user, if it was obtained with the given password
+     *
+     * @param hostname the hostname of the Minesweeper API server
+     * @param port     the port of the Minesweeper API server
+     * @param username the user name
+     * @param password the password
+     * @return the token or empty if none is stored for the password
+     */
+    public synchronized Optional<Token> load(String hostname, int port, String username, String password) {
+        Properties sessions = read();
+        String key = key(hostname, port, username);
+        String token = sessions.getProperty(key);
+        String hash = sessions.getProperty(key + ".password");
+        if (token == null || hash == null || !matches(hash, password))
+            return Optional.empty();
+        return Optional.of(new Token(token));
+    }
+
+    /**
+     * Stores the token of a user, replacing any previous one
+     *
+     * @param hostname the hostname of the Minesweeper API server
+     * @param port     the port of the Minesweeper API server
+     * @param username the user name
+     * @param password the password the token was obtained with
+     * @param token    the token
+     */
+    public synchronized void save(String hostname, int port, String username, String password, Token token) {
+        Properties sessions = read();
+        String key = key(hostname, port, username);
+        sessions.setProperty(key, token.getToken());
+        sessions.setProperty(key + ".password", hash(password));
+        write(sessions);
+    }
+
+    /**
+     * Removes the token of a user
+     *
+     * @param hostname the hostname of the Minesweeper API server
+     * @param port     the port of the Minesweeper API server
+     * @param username the user name
+     */
+    public synchronized void remove(String hostname, int port, String username) {
+        Properties sessions = read();
+        String key = key(hostname, port, username);
+        sessions.remove(key + ".password");
+        if (sessions.remove(key) != null)
+            write(sessions);
+    }
+
+    private Properties read() {
+        Properties sessions = new Properties();
+        if (Files.isReadable(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                sessions.load(in);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return sessions;
+    }
+
+    private void write(Properties sessions) {
+        try {
+            Files.createDirectories(file.getParent());
+            boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+            if (posix)
+                Files.setPosixFilePermissions(file.getParent(), PosixFilePermissions.fromString("rwx------"));
+            Path temp = Files.createTempFile(file.getParent(), "sessions", ".tmp");
+            if (posix)
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                sessions.store(out, "Minesweeper client sessions");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns a new random salt and the PBKDF2 hash of the password with it, as "salt:hash" in Base64
+     */
+    private static String hash(String password) {
+        byte[] salt = new byte[16];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return base64.encodeToString(salt) + ":" + base64.encodeToString(pbkdf2(password, salt));
+    }
+
+    private static boolean matches(String hash, String password) {
+        String[] parts = hash.split(":");
+        if (parts.length != 2)
+            return false;
+        try {
+            Base64.Decoder base64 = Base64.getDecoder();
+            return MessageDigest.isEqual(base64.decode(parts[1]), pbkdf2(password, base64.decode(parts[0])));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, HASH_ITERATIONS, 256);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static String key(String hostname, int port, String username) {
+        return hostname + ":" + port + ":" + username;
+    }
+}
@@ -0,0 +1,328 @@
+/**
+ * A deterministic Minesweeper solver.
+ * <p>
+ * The solver finds the cells of a board that are certainly safe and certainly mines using
+ * single-cell rules and subset/overlap constraint propagation between neighbouring clues.
+ * Flagged cells are trusted to be mines.
+ * <p>
+ * A solver instance keeps its deductions between calls to {@link #solve(Board)}. When it is given a
+ * newer state of the same board, only the constraints around the cells that changed are propagated again.
+ * All the working state lives in flat arrays and bitsets sized once per board, so solving does not
+ * allocate per cell.
+ */
+public class Solver {
+
+    // Internal cell codes, on top of the Board codes
+    private static final byte SAFE = 13;
+    private static final byte DEDUCED_MINE = 14;
+
+    private int rows;
+    private int cols;
+    private byte[] last;
+    private byte[] state;
+    private long[] frontier;
+    private long[] deducedSafe;
+    private long[] deducedMine;
+    private long[] queued;
+    private int[] queue;
+    private int head;
+    private int size;
+
+    /**
+     * Returns the cells of the board that are certainly safe and certainly mines
+     * and have not been swiped or flagged yet.
+     *
+     * @param board the current board of the game
+     * @return the certain moves
+     */
+    public SolverResult solve(Board board) {
+        update(board);
+        propagate();
+        return collect();
+    }
+
+    /**
+     * Returns the amount of clues that still have unknown cells around
+     *
+     * @return the frontier size
+     */
+    public int getFrontierSize() {
+        int count = 0;
+        if (frontier != null) {
+            for (long word : frontier)
+                count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private void update(Board board) {
+        byte[] cells = board.cells();
+        if (last == null || board.getRows() != rows || board.getCols() != cols) {
+            reset(board);
+            return;
+        }
+
+        for (int i = 0; i < cells.length; i++) {
+            byte code = cells[i];
+            if (code == last[i])
+                continue;
+
+            last[i] = code;
+            if (isUnknown(code) && (state[i] == SAFE || state[i] == DEDUCED_MINE)) {
+                // Still pending, keep the deduction
+                continue;
+            }
+            state[i] = code;
+            clear(deducedSafe, i);
+            clear(deducedMine, i);
+            enqueueAround(i);
+        }
+    }
+
+    private void reset(Board board) {
+        rows = board.getRows();
+        cols = board.getCols();
+        int n = rows * cols;
+        int words = (n + 63) >>> 6;
+        last = board.cells().clone();
+        state = last.clone();
+        frontier = new long[words];
+        deducedSafe = new long[words];
+        deducedMine = new long[words];
+        queued = new long[words];
+        queue = new int[Math.max(n, 1)];
+        head = 0;
+        size = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (Board.isCleared(state[i]))
+                enqueue(i);
+        }
+    }
+
+    private void propagate() {
+        while (size > 0) {
+            int cell = queue[head];
+            head = head + 1 == queue.length ? 0 : head + 1;
+            size--;
+            clear(queued, cell);
+            process(cell);
+        }
+    }
+
+    private void process(int cell) {
+        byte clue = state[cell];
+        if (!Board.isCleared(clue))
+            return;
+
+        int row = cell / cols;
+        int col = cell % cols;
+        int mask = unknownMask(row, col, 0, 0);
+        if (mask == 0) {
+            clear(frontier, cell);
+            return;
+        }
+        set(frontier, cell);
+
+        int unknown = Integer.bitCount(mask);
+        int remaining = clue - mineCount(row, col);
+
+        // Single-cell rules
+        if (remaining == 0) {
+            markWindow(row, col, mask, SAFE);
+            return;
+        }
+        if (remaining == unknown) {
+            markWindow(row, col, mask, DEDUCED_MINE);
+            return;
+        }
+
+        // Subset and overlap rules against the clues sharing unknown cells with this one
+        for (int dr = -2; dr <= 2; dr++) {
+            int r = row + dr;
+            if (r < 0 || r >= rows)
+                continue;
+            for (int dc = -2; dc <= 2; dc++) {
+                int c = col + dc;
+                if (c < 0 || c >= cols || (dr == 0 && dc == 0))
+                    continue;
+                int other = r * cols + c;
+                if (!Board.isCleared(state[other]) || !get(frontier, other))
+                    continue;
+
+                int otherMask = unknownMask(r, c, dr, dc);
+                int shared = mask & otherMask;
+                if (shared == 0)
+                    continue;
+
+                int otherUnknown = unknownCount(r, c);
+                int otherRemaining = state[other] - mineCount(r, c);
+                int onlyMine = unknown - Integer.bitCount(shared);
+                int onlyOther = otherUnknown - Integer.bitCount(shared);
+
+                if (otherRemaining - remaining == onlyOther && onlyOther > 0) {
+                    // The other clue's extra cells hold all its extra mines, so ours are safe
+                    markOutside(r, c, row, col, DEDUCED_MINE);
+                    markWindow(row, col, mask & ~otherMask, SAFE);
+                    return;
+                }
+                if (remaining - otherRemaining == onlyMine && onlyMine > 0) {
+                    markWindow(row, col, mask & ~otherMask, DEDUCED_MINE);
+                    markOutside(r, c, row, col, SAFE);
+                    return;
+                }
+                if (otherRemaining == remaining && onlyMine == 0 && onlyOther > 0) {
+                    // Our cells are a subset holding all the mines of the other clue
+                    markOutside(r, c, row, col, SAFE);
+                    return;
+                }
+                if (otherRemaining == remaining && onlyOther == 0 && onlyMine > 0) {
+                    markWindow(row, col, mask & ~otherMask, SAFE);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the unknown neighbours of a cell as a bitmask over the 5x5 window
+     * centered on the cell at offset (-dr, -dc) from it.
+     */
+    private int unknownMask(int row, int col, int dr, int dc) {
+        int mask = 0;
+        for (int i = -1; i <= 1; i++) {
+            int r = row + i;
+            int wr = dr + i + 2;
+            if (r < 0 || r >= rows || wr < 0 || wr > 4)
+                continue;
+            for (int j = -1; j <= 1; j++) {
+                int c = col + j;
+                int wc = dc + j + 2;
+                if (c < 0 || c >= cols || wc < 0 || wc > 4 || (i == 0 && j == 0))
+                    continue;
+                if (isUnknown(state[r * cols + c]))
+                    mask |= 1 << (wr * 5 + wc);
+            }
+        }
+        return mask;
+    }
+
+    private int unknownCount(int row, int col) {
+        int count = 0;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                if (isUnknown(state[r * cols + c]))
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    private int mineCount(int row, int col) {
+        int count = 0;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                byte code = state[r * cols + c];
+                if (code == Board.FLAGGED || code == Board.MINE || code == DEDUCED_MINE)
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Marks the cells of a 5x5 window mask centered on the given cell
+     */
+    private void markWindow(int row, int col, int mask, byte code) {
+        while (mask != 0) {
+            int bit = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            mark((row + bit / 5 - 2) * cols + col + bit % 5 - 2, code);
+        }
+    }
+
+    /**
+     * Marks the unknown neighbours of a cell that are not neighbours of the excluded cell
+     */
+    private void markOutside(int row, int col, int excludedRow, int excludedCol, byte code) {
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                if (Math.abs(r - excludedRow) <= 1 && Math.abs(c - excludedCol) <= 1)
+                    continue;
+                int cell = r * cols + c;
+                if (isUnknown(state[cell]))
+                    mark(cell, code);
+            }
+        }
+    }
+
+    private void mark(int cell, byte code) {
+        state[cell] = code;
+        set(code == SAFE ? deducedSafe : deducedMine, cell);
+        enqueueAround(cell);
+    }
+
+    private void enqueueAround(int cell) {
+        int row = cell / cols;
+        int col = cell % cols;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                int neighbour = r * cols + c;
+                if (Board.isCleared(state[neighbour]))
+                    enqueue(neighbour);
+            }
+        }
+    }
+
+    private void enqueue(int cell) {
+        if (get(queued, cell))
+            return;
+        set(queued, cell);
+        int tail = head + size;
+        queue[tail >= queue.length ? tail - queue.length : tail] = cell;
+        size++;
+    }
+
+    private SolverResult collect() {
+        return new SolverResult(cols, pending(deducedSafe), pending(deducedMine));
+    }
+
+    /**
+     * Returns the deduced cells that are still unknown on the last board
+     */
+    private int[] pending(long[] deduced) {
+        int count = 0;
+        for (int w = 0; w < deduced.length; w++) {
+            for (long word = deduced[w]; word != 0; word &= word - 1) {
+                if (isUnknown(last[(w << 6) + Long.numberOfTrailingZeros(word)]))
+                    count++;
+            }
+        }
+        int[] cells = new int[count];
+        int i = 0;
+        for (int w = 0; w < deduced.length; w++) {
+            for (long word = deduced[w]; word != 0; word &= word - 1) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (isUnknown(last[cell]))
+                    cells[i++] = cell;
+            }
+        }
+        return cells;
+    }
+
+    private static boolean isUnknown(byte code) {
+        return code == Board.UNEXPLORED || code == Board.MARKED;
+    }
+
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    private static void clear(long[] bits, int i) {
+        bits[i >>> 6] &= ~(1L << i);
+    }
+}
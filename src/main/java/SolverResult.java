@@ -0,0 +1,64 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The certain moves found by a {@link Solver} on a board
+ */
+public class SolverResult {
+
+    private final int cols;
+    private final int[] safe;
+    private final int[] mines;
+
+    SolverResult(int cols, int[] safe, int[] mines) {
+        this.cols = cols;
+        this.safe = safe;
+        this.mines = mines;
+    }
+
+    /**
+     * Returns true if no certain move was found
+     *
+     * @return true if there is nothing to play
+     */
+    public boolean isEmpty() {
+        return safe.length == 0 && mines.length == 0;
+    }
+
+    /**
+     * Returns the row-major indexes of the cells that are certainly safe
+     *
+     * @return the safe cell indexes
+     */
+    public int[] getSafeCells() {
+        return safe;
+    }
+
+    /**
+     * Returns the row-major indexes of the cells that are certainly mines
+     *
+     * @return the mine cell indexes
+     */
+    public int[] getMineCells() {
+        return mines;
+    }
+
+    /**
+     * Returns the moves as actions, swipes of the safe cells first and then flags of the mines
+     *
+     * @return the actions to apply
+     */
+    public List<Action> toActions() {
+        List<Action> actions = new ArrayList<>(safe.length + mines.length);
+        for (int cell : safe)
+            actions.add(Action.swipe(cell / cols, cell % cols));
+        for (int cell : mines)
+            actions.add(Action.flag(cell / cols, cell % cols));
+        return actions;
+    }
+
+    @Override
+    public String toString() {
+        return safe.length + " safe cells, " + mines.length + " mines";
+    }
+}
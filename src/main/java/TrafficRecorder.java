@@ -0,0 +1,406 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends every request of the clients using it, and the response or failure it got, to a binary traffic log
+ * that a {@link TrafficReplayer} serves back without a server.
+ * <p>
+ * The log starts with a magic number and a version, followed by one length-prefixed record per request:
+ * <pre>
+ * int    length of the rest of the record
+ * long   start of the request, in nanoseconds since the recorder was created
+ * long   time until the whole response was received, in nanoseconds
+ * byte   outcome: 0 response, 1 timeout, 2 connection failure
+ * string method, then path and query
+ * bytes  request body
+ * short  status, then for each header a string name and value, then the bytes of the body (responses)
+ * string failure message (failures)
+ * </pre>
+ * Strings are an unsigned short length followed by UTF-8, and bytes are an int length followed by the bytes.
+ * Bodies are recorded as they arrived, compressed if the server compressed them, except for logins: the password
+ * of a login request and the token of its response are replaced by {@value #REDACTED}, so a replayed login
+ * succeeds without giving away the credentials. Every other request still carries its user token in a header
+ * that is not recorded, but game bodies and timings are, so logs should be kept as private as the account.
+ * <pre>
+ * try (TrafficRecorder recorder = new TrafficRecorder(Paths.get("session.log"))) {
+ *     MinesweeperClient client = new MinesweeperClient(host, port, new TransportConfig().withRecorder(recorder));
+ *     ...
+ * }
+ * </pre>
+ */
+public class TrafficRecorder implements Closeable {
+
+    static final int MAGIC = 0x4d53544c;
+    static final short VERSION = 1;
+
+    static final byte RESPONSE = 0;
+    static final byte TIMEOUT = 1;
+    static final byte FAILURE = 2;
+
+    static final String REDACTED = "REDACTED";
+
+    private static final String LOGIN = "/login";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final OutputStream out;
+    private final long origin = System.nanoTime();
+    private long records;
+    private IOException writeFailure;
+
+    /**
+     * Creates a recorder writing a new log to the given file, replacing it if it exists
+     *
+     * @param file the log file
+     * @throws IOException if the file cannot be written
+     */
+    public TrafficRecorder(Path file) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 1 << 16);
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+    }
+
+    /**
+     * Returns the amount of requests recorded
+     *
+     * @return the records written
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * Writes the records still buffered and closes the log
+     *
+     * @throws IOException if the log cannot be written, or a record could not be written before
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+        if (writeFailure != null)
+            throw writeFailure;
+    }
+
+    /**
+     * Returns a client sending its requests through the given one and recording them
+     */
+    HttpClient wrap(HttpClient client) {
+        return new RecordingHttpClient(client);
+    }
+
+    /**
+     * Writes the record of a request, unless it was recorded already. Failing to write it does not fail the request.
+     */
+    private void record(AtomicBoolean recorded, long start, HttpRequest request, byte[] requestBody,
+                        HttpResponse.ResponseInfo response, ByteArrayOutputStream responseBody, Throwable failure) {
+        if (!recorded.compareAndSet(false, true))
+            return;
+
+        long duration = System.nanoTime() - start;
+        boolean login = request.method().equals("POST") && target(request.uri()).equals(LOGIN);
+        if (login) {
+            requestBody = redact(requestBody, "password", false);
+            if (responseBody != null) {
+                boolean gzip = response.headers().firstValue("Content-Encoding").map("gzip"::equalsIgnoreCase).orElse(false);
+                byte[] redacted = redact(responseBody.toByteArray(), "token", gzip);
+                responseBody = new ByteArrayOutputStream(redacted.length);
+                responseBody.write(redacted, 0, redacted.length);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + (responseBody != null ? responseBody.size() : 0));
+        DataOutputStream record = new DataOutputStream(bytes);
+        try {
+            record.writeLong(start - origin);
+            record.writeLong(duration);
+            record.writeByte(failure == null ? RESPONSE : failure instanceof HttpTimeoutException ? TIMEOUT : FAILURE);
+            writeString(record, request.method());
+            writeString(record, target(request.uri()));
+            record.writeInt(requestBody.length);
+            record.write(requestBody);
+            if (failure == null) {
+                record.writeShort(response.statusCode());
+                Map<String, List<String>> headers = response.headers().map();
+                record.writeShort(headers.values().stream().mapToInt(List::size).sum());
+                for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                    for (String value : header.getValue()) {
+                        writeString(record, header.getKey());
+                        writeString(record, value);
+                    }
+                }
+                record.writeInt(responseBody.size());
+                responseBody.writeTo(record);
+            } else {
+                writeString(record, failure.toString());
+            }
+
+            synchronized (this) {
+                DataOutputStream log = new DataOutputStream(out);
+                log.writeInt(bytes.size());
+                bytes.writeTo(log);
+                records++;
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (writeFailure == null)
+                    writeFailure = e;
+            }
+        }
+    }
+
+    /**
+     * Returns a JSON object with a field replaced by {@value #REDACTED}, compressed again if it was,
+     * or nothing if the body is not a JSON object
+     */
+    private static byte[] redact(byte[] body, String field, boolean gzip) {
+        try {
+            byte[] json = body;
+            if (gzip) {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    json = in.readAllBytes();
+                }
+            }
+            JsonNode node = MAPPER.readTree(json);
+            if (!(node instanceof ObjectNode))
+                return new byte[0];
+            if (node.has(field))
+                ((ObjectNode) node).put(field, REDACTED);
+            byte[] redacted = MAPPER.writeValueAsBytes(node);
+            if (!gzip)
+                return redacted;
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(redacted.length);
+            try (OutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(redacted);
+            }
+            return compressed.toByteArray();
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    /**
+     * Returns the path and query of a request, the part of its URI a replayed request is matched by
+     */
+    static String target(URI uri) {
+        return uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff)
+            throw new IOException("String too long to record: " + bytes.length + " bytes");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Returns the body a request publishes, which the JDK publishers produce again for every subscriber
+     */
+    private static byte[] requestBody(HttpRequest request) {
+        Optional<HttpRequest.BodyPublisher> publisher = request.bodyPublisher();
+        if (publisher.isEmpty() || publisher.get().contentLength() == 0)
+            return new byte[0];
+
+        CompletableFuture<byte[]> body = new CompletableFuture<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        publisher.get().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                copy(item, bytes);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                body.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                body.complete(bytes.toByteArray());
+            }
+        });
+        return body.join();
+    }
+
+    private static void copy(ByteBuffer buffer, ByteArrayOutputStream out) {
+        ByteBuffer view = buffer.duplicate();
+        if (view.hasArray()) {
+            out.write(view.array(), view.arrayOffset() + view.position(), view.remaining());
+        } else {
+            byte[] chunk = new byte[view.remaining()];
+            view.get(chunk);
+            out.write(chunk, 0, chunk.length);
+        }
+    }
+
+    /**
+     * Sends requests through another client, copying each response body as it is received
+     */
+    private class RecordingHttpClient extends HttpClient {
+
+        private final HttpClient client;
+
+        RecordingHttpClient(HttpClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            byte[] requestBody = requestBody(request);
+            AtomicBoolean recorded = new AtomicBoolean();
+            try {
+                return client.send(request, recording(recorded, start, request, requestBody, bodyHandler));
+            } catch (IOException e) {
+                record(recorded, start, request, requestBody, null, null, e);
+                throw e;
+            }
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+            return sendAsync(request, bodyHandler, null);
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+            long start = System.nanoTime();
+            byte[] requestBody = requestBody(request);
+            AtomicBoolean recorded = new AtomicBoolean();
+            return client.sendAsync(request, recording(recorded, start, request, requestBody, bodyHandler), pushPromiseHandler)
+                    .whenComplete((response, e) -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof IOException)
+                            record(recorded, start, request, requestBody, null, null, cause);
+                    });
+        }
+
+        /**
+         * Returns a body handler recording the response once its body was received
+         */
+        private <T> HttpResponse.BodyHandler<T> recording(AtomicBoolean recorded, long start, HttpRequest request, byte[] requestBody, HttpResponse.BodyHandler<T> bodyHandler) {
+            return info -> {
+                HttpResponse.BodySubscriber<T> subscriber = bodyHandler.apply(info);
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                return new HttpResponse.BodySubscriber<>() {
+                    @Override
+                    public CompletionStage<T> getBody() {
+                        return subscriber.getBody();
+                    }
+
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        subscriber.onSubscribe(subscription);
+                    }
+
+                    @Override
+                    public void onNext(List<ByteBuffer> item) {
+                        for (ByteBuffer buffer : item)
+                            copy(buffer, body);
+                        subscriber.onNext(item);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        record(recorded, start, request, requestBody, null, null, throwable);
+                        subscriber.onError(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        record(recorded, start, request, requestBody, info, body, null);
+                        subscriber.onComplete();
+                    }
+                };
+            };
+        }
+
+        @Override
+        public Optional<CookieHandler> cookieHandler() {
+            return client.cookieHandler();
+        }
+
+        @Override
+        public Optional<Duration> connectTimeout() {
+            return client.connectTimeout();
+        }
+
+        @Override
+        public Redirect followRedirects() {
+            return client.followRedirects();
+        }
+
+        @Override
+        public Optional<ProxySelector> proxy() {
+            return client.proxy();
+        }
+
+        @Override
+        public SSLContext sslContext() {
+            return client.sslContext();
+        }
+
+        @Override
+        public SSLParameters sslParameters() {
+            return client.sslParameters();
+        }
+
+        @Override
+        public Optional<Authenticator> authenticator() {
+            return client.authenticator();
+        }
+
+        @Override
+        public Version version() {
+            return client.version();
+        }
+
+        @Override
+        public Optional<Executor> executor() {
+            return client.executor();
+        }
+    }
+}
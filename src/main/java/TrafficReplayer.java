@@ -0,0 +1,372 @@
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the responses of a traffic log written by a {@link TrafficRecorder} instead of a server.
+ * <p>
+ * The log is memory-mapped and indexed once; response bodies are handed to the client straight from the mapping.
+ * Each request gets the next recorded response to the same method and path, in the order they were recorded,
+ * so a session replays the same way however its requests interleave with other sessions.
+ * Recorded timeouts and connection failures are replayed as such. Responses are served as fast as possible,
+ * or each after the time it took when recorded.
+ * <pre>
+ * TrafficReplayer replayer = TrafficReplayer.open(Paths.get("session.log"), false);
+ * MinesweeperClient client = new MinesweeperClient(host, port, new TransportConfig().withReplayer(replayer));
+ * </pre>
+ */
+public class TrafficReplayer {
+
+    private final MappedByteBuffer log;
+    private final boolean paced;
+    private final Map<String, Exchanges> exchanges;
+
+    private TrafficReplayer(MappedByteBuffer log, boolean paced, Map<String, Exchanges> exchanges) {
+        this.log = log;
+        this.paced = paced;
+        this.exchanges = exchanges;
+    }
+
+    /**
+     * The positions of the records of one method and path, and the next one to serve
+     */
+    private static class Exchanges {
+        int[] positions = new int[4];
+        int size;
+        final AtomicInteger next = new AtomicInteger();
+
+        void add(int position) {
+            if (size == positions.length)
+                positions = Arrays.copyOf(positions, size * 2);
+            positions[size++] = position;
+        }
+    }
+
+    /**
+     * Opens a traffic log
+     *
+     * @param file  the log file, of up to 2 GB
+     * @param paced true to serve each response after the time it took when recorded, false to serve it at once
+     * @return the replayer
+     * @throws IOException if the file cannot be read or is not a traffic log
+     */
+    public static TrafficReplayer open(Path file, boolean paced) throws IOException {
+        MappedByteBuffer log;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Traffic log larger than 2 GB: " + file);
+            log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (log.limit() < 6 || log.getInt(0) != TrafficRecorder.MAGIC)
+            throw new IOException("Not a traffic log: " + file);
+        if (log.getShort(4) != TrafficRecorder.VERSION)
+            throw new IOException("Unsupported traffic log version " + log.getShort(4) + ": " + file);
+
+        Map<String, Exchanges> exchanges = new HashMap<>();
+        int position = 6;
+        while (position + 4 <= log.limit()) {
+            int length = log.getInt(position);
+            // A record cut short by a process that did not close its recorder ends the log
+            if (length < 0 || position + 4 + length > log.limit())
+                break;
+            Record record = new Record(log, position + 4);
+            exchanges.computeIfAbsent(record.key, key -> new Exchanges()).add(position + 4);
+            position += 4 + length;
+        }
+        return new TrafficReplayer(log, paced, exchanges);
+    }
+
+    /**
+     * Returns the amount of recorded requests to a method and path
+     *
+     * @param method the request method
+     * @param target the request path and query
+     * @return the amount of records
+     */
+    public int getRecords(String method, String target) {
+        Exchanges recorded = exchanges.get(method + " " + target);
+        return recorded == null ? 0 : recorded.size;
+    }
+
+    /**
+     * Serves every recorded response again from the first one
+     */
+    public void rewind() {
+        for (Exchanges recorded : exchanges.values())
+            recorded.next.set(0);
+    }
+
+    /**
+     * Returns a client answering requests from the log, completing them on the given executor
+     */
+    HttpClient httpClient(Executor executor) {
+        return new ReplayingHttpClient(executor != null ? executor : ForkJoinPool.commonPool());
+    }
+
+    /**
+     * A record read from the log, with its response body left in the mapping
+     */
+    private static class Record {
+        final long durationNanos;
+        final byte outcome;
+        final String key;
+        int status;
+        HttpHeaders headers;
+        ByteBuffer body;
+        String failure;
+
+        Record(ByteBuffer log, int position) {
+            ByteBuffer in = log.duplicate().position(position);
+            in.getLong();
+            durationNanos = in.getLong();
+            outcome = in.get();
+            String method = readString(in);
+            key = method + " " + readString(in);
+            int requestLength = in.getInt();
+            in.position(in.position() + requestLength);
+            if (outcome != TrafficRecorder.RESPONSE) {
+                failure = readString(in);
+                return;
+            }
+
+            status = in.getShort() & 0xffff;
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int count = in.getShort() & 0xffff; count > 0; count--)
+                headers.computeIfAbsent(readString(in), name -> new ArrayList<>()).add(readString(in));
+            this.headers = HttpHeaders.of(headers, (name, value) -> true);
+            int length = in.getInt();
+            body = in.slice().limit(length);
+        }
+
+        private static String readString(ByteBuffer in) {
+            int length = in.getShort() & 0xffff;
+            String s = StandardCharsets.UTF_8.decode(in.slice().limit(length)).toString();
+            in.position(in.position() + length);
+            return s;
+        }
+    }
+
+    /**
+     * Answers requests with the next recorded response to their method and path
+     */
+    private class ReplayingHttpClient extends HttpClient {
+
+        private final Executor executor;
+
+        ReplayingHttpClient(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+            try {
+                return sendAsync(request, bodyHandler).get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw new IOException(e.getCause());
+            }
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+            return sendAsync(request, bodyHandler, null);
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+            String key = request.method() + " " + TrafficRecorder.target(request.uri());
+            Exchanges recorded = exchanges.get(key);
+            int index = recorded == null ? 0 : recorded.next.getAndIncrement();
+            if (recorded == null || index >= recorded.size)
+                return CompletableFuture.failedFuture(new IOException("No recorded response left for " + key));
+
+            Record record = new Record(log, recorded.positions[index]);
+            Executor delivery = paced
+                    ? CompletableFuture.delayedExecutor(record.durationNanos, TimeUnit.NANOSECONDS, executor)
+                    : executor;
+            return CompletableFuture.supplyAsync(() -> record, delivery)
+                    .thenCompose(replayed -> respond(request, replayed, bodyHandler));
+        }
+
+        private <T> CompletableFuture<HttpResponse<T>> respond(HttpRequest request, Record record, HttpResponse.BodyHandler<T> bodyHandler) {
+            if (record.outcome == TrafficRecorder.TIMEOUT)
+                return CompletableFuture.failedFuture(new HttpTimeoutException(record.failure));
+            if (record.outcome != TrafficRecorder.RESPONSE)
+                return CompletableFuture.failedFuture(new IOException(record.failure));
+
+            HttpResponse.ResponseInfo info = new HttpResponse.ResponseInfo() {
+                @Override
+                public int statusCode() {
+                    return record.status;
+                }
+
+                @Override
+                public HttpHeaders headers() {
+                    return record.headers;
+                }
+
+                @Override
+                public Version version() {
+                    return Version.HTTP_1_1;
+                }
+            };
+            HttpResponse.BodySubscriber<T> subscriber = bodyHandler.apply(info);
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private final AtomicBoolean delivered = new AtomicBoolean();
+
+                @Override
+                public void request(long n) {
+                    if (n > 0 && delivered.compareAndSet(false, true)) {
+                        subscriber.onNext(List.of(record.body.duplicate()));
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    delivered.set(true);
+                }
+            });
+            return subscriber.getBody().toCompletableFuture()
+                    .thenApply(body -> new ReplayedResponse<>(request, info, body));
+        }
+
+        @Override
+        public Optional<CookieHandler> cookieHandler() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<Duration> connectTimeout() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Redirect followRedirects() {
+            return Redirect.NEVER;
+        }
+
+        @Override
+        public Optional<ProxySelector> proxy() {
+            return Optional.empty();
+        }
+
+        @Override
+        public SSLContext sslContext() {
+            try {
+                return SSLContext.getDefault();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public SSLParameters sslParameters() {
+            return new SSLParameters();
+        }
+
+        @Override
+        public Optional<Authenticator> authenticator() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Version version() {
+            return Version.HTTP_1_1;
+        }
+
+        @Override
+        public Optional<Executor> executor() {
+            return Optional.of(executor);
+        }
+    }
+
+    private static class ReplayedResponse<T> implements HttpResponse<T> {
+
+        private final HttpRequest request;
+        private final ResponseInfo info;
+        private final T body;
+
+        ReplayedResponse(HttpRequest request, ResponseInfo info, T body) {
+            this.request = request;
+            this.info = info;
+            this.body = body;
+        }
+
+        @Override
+        public int statusCode() {
+            return info.statusCode();
+        }
+
+        @Override
+        public HttpRequest request() {
+            return request;
+        }
+
+        @Override
+        public Optional<HttpResponse<T>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return info.headers();
+        }
+
+        @Override
+        public T body() {
+            return body;
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return info.version();
+        }
+    }
+}
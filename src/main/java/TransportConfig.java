@@ -0,0 +1,183 @@
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * How {@link HTTPClient} talks to the Minesweeper API server.
+ * <p>
+ * A configuration is immutable; each "with" method returns a changed copy. By default requests use
+ * HTTP/1.1 with a 10 second connect timeout, no request timeout and no compression, and game boards are parsed
+ * as soon as they are received.
+ * <p>
+ * With HTTP/2 the client upgrades its first connection to cleartext HTTP/2 (h2c) and then multiplexes
+ * concurrent requests over it, instead of opening a socket per concurrent request.
+ * <p>
+ * The connection pool limits are not part of a configuration: the JDK HTTP client reads them once per process,
+ * from JVM options such as {@code -Djdk.httpclient.connectionPoolSize=16} and
+ * {@code -Djdk.httpclient.keepalive.timeout=30}, and applies them to every client of the process.
+ * <p>
+ * A {@link TrafficRecorder} logs the traffic of the client, and a {@link TrafficReplayer} answers its requests
+ * from such a log without contacting the server.
+ */
+public class TransportConfig {
+
+    private final HttpClient.Version version;
+    private final Duration connectTimeout;
+    private final Duration requestTimeout;
+    private final Executor executor;
+    private final boolean gzip;
+    private final TrafficRecorder recorder;
+    private final TrafficReplayer replayer;
+    private final boolean lazyBoards;
+
+    /**
+     * Creates the default configuration
+     */
+    public TransportConfig() {
+        this(HttpClient.Version.HTTP_1_1, Duration.ofSeconds(10), null, null, false, null, null, false);
+    }
+
+    private TransportConfig(HttpClient.Version version, Duration connectTimeout, Duration requestTimeout,
+                            Executor executor, boolean gzip, TrafficRecorder recorder, TrafficReplayer replayer, boolean lazyBoards) {
+        this.version = version;
+        this.connectTimeout = connectTimeout;
+        this.requestTimeout = requestTimeout;
+        this.executor = executor;
+        this.gzip = gzip;
+        this.recorder = recorder;
+        this.replayer = replayer;
+        this.lazyBoards = lazyBoards;
+    }
+
+    /**
+     * Returns a copy using the given HTTP version
+     *
+     * @param version HTTP_1_1, or HTTP_2 to multiplex requests over one connection
+     * @return the changed configuration
+     */
+    public TransportConfig withVersion(HttpClient.Version version) {
+        return new TransportConfig(version, connectTimeout, requestTimeout, executor, gzip, recorder, replayer, lazyBoards);
+    }
+
+    /**
+     * Returns a copy with the given connect timeout
+     *
+     * @param connectTimeout the time to establish a connection, or null to wait as long as the system does
+     * @return the changed configuration
+     */
+    public TransportConfig withConnectTimeout(Duration connectTimeout) {
+        return new TransportConfig(version, connectTimeout, requestTimeout, executor, gzip, recorder, replayer, lazyBoards);
+    }
+
+    /**
+     * Returns a copy with the given request timeout. A request that times out fails with a {@link RequestTimeoutException}.
+     *
+     * @param requestTimeout the time to receive the response headers of a request, or null to wait indefinitely
+     * @return the changed configuration
+     */
+    public TransportConfig withRequestTimeout(Duration requestTimeout) {
+        return new TransportConfig(version, connectTimeout, requestTimeout, executor, gzip, recorder, replayer, lazyBoards);
+    }
+
+    /**
+     * Returns a copy running asynchronous work on the given executor
+     *
+     * @param executor the executor, or null to use the default one
+     * @return the changed configuration
+     */
+    public TransportConfig withExecutor(Executor executor) {
+        return new TransportConfig(version, connectTimeout, requestTimeout, executor, gzip, recorder, replayer, lazyBoards);
+    }
+
+    /**
+     * Returns a copy that asks for gzip compressed responses and decodes them
+     *
+     * @param gzip true to accept gzip compressed responses
+     * @return the changed configuration
+     */
+    public TransportConfig withGzip(boolean gzip) {
+        return new TransportConfig(version, connectTimeout, requestTimeout, executor, gzip, recorder, replayer, lazyBoards);
+    }
+
+    /**
+     * Returns a copy that records every request and its response in a traffic log
+     *
+     * @param recorder the recorder, or null to record nothing
+     * @return the changed configuration
+     */
+    public TransportConfig withRecorder(TrafficRecorder recorder) {
+        return new TransportConfig(version, connectTimeout, requestTimeout, executor, gzip, recorder, replayer, lazyBoards);
+    }
+
+    /**
+     * Returns a copy that answers requests from a traffic log instead of sending them to the server
+     *
+     * @param replayer the replayer, or null to send requests to the server
+     * @return the changed configuration
+     */
+    public TransportConfig withReplayer(TrafficReplayer replayer) {
+        return new TransportConfig(version, connectTimeout, requestTimeout, executor, gzip, recorder, replayer, lazyBoards);
+    }
+
+    /**
+     * Returns a copy that parses the board of a game state only when it is first accessed.
+     * The status, mines and dates of the game are parsed at once, and the board is kept as the JSON received,
+     * so reading only them from many large games costs a fraction of the CPU and memory.
+     * Game states are then received whole instead of streamed into the parser.
+     *
+     * @param lazyBoards true to parse boards on first access
+     * @return the changed configuration
+     */
+    public TransportConfig withLazyBoards(boolean lazyBoards) {
+        return new TransportConfig(version, connectTimeout, requestTimeout, executor, gzip, recorder, replayer, lazyBoards);
+    }
+
+    public HttpClient.Version getVersion() {
+        return version;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public TrafficRecorder getRecorder() {
+        return recorder;
+    }
+
+    public TrafficReplayer getReplayer() {
+        return replayer;
+    }
+
+    public boolean isLazyBoards() {
+        return lazyBoards;
+    }
+
+    /**
+     * Builds a JDK HTTP client for this configuration, or a replaying one, wrapped by the recorder if there is one
+     */
+    HttpClient newHttpClient() {
+        HttpClient client = replayer != null ? replayer.httpClient(executor) : newJdkHttpClient();
+        return recorder != null ? recorder.wrap(client) : client;
+    }
+
+    private HttpClient newJdkHttpClient() {
+        HttpClient.Builder builder = HttpClient.newBuilder().version(version);
+        if (connectTimeout != null)
+            builder.connectTimeout(connectTimeout);
+        if (executor != null)
+            builder.executor(executor);
+        return builder.build();
+    }
+}
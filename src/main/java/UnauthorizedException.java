@@ -0,0 +1,11 @@
+/**
+ * Thrown when the Minesweeper API server rejects the user token of a request, e.g. because it expired
+ */
+public class UnauthorizedException extends RequestRejectedException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UnauthorizedException(Endpoint endpoint) {
+        super(endpoint, 401, "User token rejected");
+    }
+}
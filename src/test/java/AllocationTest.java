@@ -0,0 +1,110 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Bounds the bytes allocated per request body and per request, so sharing the JSON readers and writing bodies
+ * from templates does not silently regress. A request is measured on every client thread it runs on: the calling
+ * thread, the client executor, which here is a single known thread, and the selector thread of the JDK client,
+ * which reads and decodes the responses. The limits leave room for JIT and JDK differences, and are far below what
+ * an object mapper per call allocated.
+ */
+class AllocationTest {
+
+    private static final long ACTION_BODY_LIMIT = 256;
+    private static final long DO_ACTION_LIMIT = 40 * 1024;
+    private static final long GET_GAME_LIMIT = 56 * 1024;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final String EXECUTOR = "allocation-client";
+
+    private static EmbeddedServer server;
+    private static ExecutorService executor;
+    private static HTTPClient client;
+    private static String token;
+    private static int gameId;
+
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    @BeforeAll
+    static void start() throws IOException {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled());
+        server = EmbeddedServer.start();
+        executor = Executors.newSingleThreadExecutor(r -> new Thread(r, EXECUTOR));
+        client = new HTTPClient(server.getHostname(), server.getPort(), executor);
+        token = client.login("allocation", "password").orElseThrow().getToken();
+        gameId = client.new_game(token, 10, 10, 10).orElseThrow().id;
+    }
+
+    @AfterAll
+    static void stop() {
+        if (server != null)
+            server.stop();
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    @Test
+    void actionBody() throws Exception {
+        long[] length = new long[1];
+        long allocated = allocatedPerCall(20_000, 10_000, () -> length[0] += JsonCodec.action(3, 7, Action.SWIPE).length, false);
+        assertTrue(allocated <= ACTION_BODY_LIMIT, allocated + " bytes per action body");
+    }
+
+    @Test
+    void doAction() throws Exception {
+        // Toggles the same mark, so every action is applied
+        long allocated = allocatedPerCall(20, 40, () -> client.do_action(token, gameId, 0, 0, Action.MARK), true);
+        assertTrue(allocated <= DO_ACTION_LIMIT, allocated + " bytes per do_action");
+    }
+
+    @Test
+    void getGame() throws Exception {
+        long allocated = allocatedPerCall(20, 40, () -> client.get_game(token, gameId), true);
+        assertTrue(allocated <= GET_GAME_LIMIT, allocated + " bytes per get_game");
+    }
+
+    /**
+     * Returns the mean bytes allocated per call, once the calls are warm, by the current thread
+     * and, for requests, by the client threads
+     */
+    private static long allocatedPerCall(int warmup, int calls, Call call, boolean request) throws Exception {
+        for (int i = 0; i < warmup; i++)
+            call.run();
+        long[] threads = request ? clientThreads() : new long[]{Thread.currentThread().getId()};
+        long start = sum(THREADS.getThreadAllocatedBytes(threads));
+        for (int i = 0; i < calls; i++)
+            call.run();
+        return (sum(THREADS.getThreadAllocatedBytes(threads)) - start) / calls;
+    }
+
+    /**
+     * Returns the ids of the current thread, the client executor thread and the JDK client threads
+     */
+    private static long[] clientThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread == Thread.currentThread() || thread.getName().equals(EXECUTOR)
+                        || thread.getName().startsWith("HttpClient-"))
+                .mapToLong(Thread::getId)
+                .toArray();
+    }
+
+    private static long sum(long[] allocated) {
+        long sum = 0;
+        for (long bytes : allocated)
+            sum += Math.max(0, bytes);
+        return sum;
+    }
+}
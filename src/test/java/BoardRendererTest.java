@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the window {@link BoardRenderer#around(int)} renders near the edges of a board
+ */
+class BoardRendererTest {
+
+    private static String[] render(BoardRenderer renderer, Board board, int row, int col) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.render(board, row, col, out);
+        return out.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+    }
+
+    @Test
+    void windowAroundACornerKeepsItsSize() throws IOException {
+        String[] lines = render(BoardRenderer.around(2), new Board(10, 10), 0, 9);
+
+        assertEquals("Rows 0-4 of 10, columns 5-9 of 10", lines[0]);
+        assertEquals(1 + 5, lines.length);
+        assertEquals(1 + 4 * 5, lines[1].length());
+    }
+
+    @Test
+    void windowAroundTheOppositeCornerKeepsItsSize() throws IOException {
+        String[] lines = render(BoardRenderer.around(2), new Board(10, 10), 9, 0);
+
+        assertEquals("Rows 5-9 of 10, columns 0-4 of 10", lines[0]);
+        assertEquals(1 + 5, lines.length);
+    }
+
+    @Test
+    void windowAroundTheCentreIsCentred() throws IOException {
+        String[] lines = render(BoardRenderer.around(2), new Board(10, 10), 5, 5);
+
+        assertEquals("Rows 3-7 of 10, columns 3-7 of 10", lines[0]);
+    }
+
+    @Test
+    void windowLargerThanTheBoardShowsTheWholeBoard() throws IOException {
+        String[] lines = render(BoardRenderer.around(5), new Board(3, 4), 0, 3);
+
+        assertEquals(3, lines.length);
+        assertEquals(1 + 4 * 4, lines[0].length());
+    }
+}
@@ -0,0 +1,133 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local server answering each request with the next scripted reply, in the order requests arrive,
+ * and with an undecided game once the script is over
+ */
+class FaultServer implements AutoCloseable {
+
+    private static final String GAME = "{\"id\":%d,\"user_id\":1,\"started_at\":\"2020-06-01T10:00:00.000Z\","
+            + "\"ended_at\":null,\"game_status\":\"undecided\",\"mines\":1,\"board\":[[\"%s\",\"#\"],[\"#\",\"#\"]]}";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "fault-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ConcurrentLinkedQueue<Reply> script = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private static class Reply {
+        final int status;
+        final byte[] body;
+        final long delayMillis;
+
+        Reply(int status, byte[] body, long delayMillis) {
+            this.status = status;
+            this.body = body;
+            this.delayMillis = delayMillis;
+        }
+    }
+
+    FaultServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Answers the next request with an error status
+     */
+    FaultServer reply(int status) {
+        return reply(status, 0);
+    }
+
+    /**
+     * Answers the next request with an error status after a delay
+     */
+    FaultServer reply(int status, long delayMillis) {
+        return reply(status, "{}", delayMillis);
+    }
+
+    /**
+     * Answers the next request with a status and body after a delay
+     */
+    FaultServer reply(int status, String body, long delayMillis) {
+        script.add(new Reply(status, body.getBytes(StandardCharsets.UTF_8), delayMillis));
+        return this;
+    }
+
+    /**
+     * Answers the next request with the game of the given id after a delay
+     */
+    FaultServer replyGame(int id, long delayMillis) {
+        return replyGame(id, "#", delayMillis);
+    }
+
+    /**
+     * Answers the next request with the game of the given id, its first cell showing the given symbol, after a delay
+     */
+    FaultServer replyGame(int id, String firstCell, long delayMillis) {
+        script.add(new Reply(200, game(id, firstCell), delayMillis));
+        return this;
+    }
+
+    /**
+     * Returns the amount of requests received
+     */
+    int getRequests() {
+        return requests.get();
+    }
+
+    String getHostname() {
+        return server.getAddress().getHostString();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Reply reply = script.poll();
+        if (reply == null)
+            reply = new Reply(200, game(0, "#"), 0);
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            if (reply.delayMillis > 0)
+                Thread.sleep(reply.delayMillis);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(reply.status, reply.body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(reply.body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client gave up on the request
+        }
+    }
+
+    private static byte[] game(int id, String firstCell) {
+        return String.format(GAME, id, firstCell).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link Game#applyActions_async(List)} sends long batches whose responses are already there
+ * without nesting a stage per action
+ */
+class GameBatchTest {
+
+    private static final int ACTIONS = 100_000;
+
+    /**
+     * A client answering every action at once, as a cache or a replayed log can, refusing them after a limit
+     */
+    private static class ImmediateClient extends MinesweeperClient {
+        private final int accepted;
+        private int actions;
+
+        ImmediateClient(int accepted) {
+            super("localhost", 1);
+            this.accepted = accepted;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> do_action_async(int gameId, int row, int col, String status) {
+            return CompletableFuture.completedFuture(actions++ < accepted);
+        }
+
+        @Override
+        public CompletableFuture<Game> get_game_async(int gameId) {
+            return CompletableFuture.completedFuture(new Game(this, state(gameId)));
+        }
+    }
+
+    private static GameState state(int id) {
+        GameState state = new GameState();
+        state.id = id;
+        state.game_status = "undecided";
+        state.setBoard(new Board(2, 2));
+        return state;
+    }
+
+    private static List<Action> swipes(int count) {
+        List<Action> actions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            actions.add(Action.swipe(i % 2, i / 2 % 2));
+        return actions;
+    }
+
+    @Test
+    void sendsLongBatchesAnsweredAtOnce() {
+        ImmediateClient client = new ImmediateClient(ACTIONS);
+        BatchResult result = new Game(client, state(1)).applyActions_async(swipes(ACTIONS)).join();
+
+        assertEquals(ACTIONS, result.getSentCount());
+        assertTrue(result.succeeded(ACTIONS - 1));
+    }
+
+    @Test
+    void stopsAtTheFirstRefusedAction() {
+        ImmediateClient client = new ImmediateClient(3);
+        BatchResult result = new Game(client, state(1)).applyActions_async(swipes(10)).join();
+
+        assertEquals(4, result.getSentCount());
+        assertTrue(result.succeeded(2));
+        assertFalse(result.succeeded(3));
+    }
+}
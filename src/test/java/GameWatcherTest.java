@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a watch ends once its games can no longer be polled, and not only once they are won or lost
+ */
+class GameWatcherTest {
+
+    private EmbeddedServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = EmbeddedServer.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    private static GameWatcher watcher(MinesweeperClient client) {
+        return new GameWatcher(client, Duration.ofMillis(20), Duration.ofMillis(100), 100, 2);
+    }
+
+    @Test
+    void stopsWatchingGamesThatDoNotExist() {
+        MinesweeperClient client = new MinesweeperClient(server.getHostname(), server.getPort());
+        assertTrue(client.login("watcher", "password"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> watcher(client).watch(new int[]{99999}, new PrintStream(out, true, StandardCharsets.UTF_8)));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("game 99999 error: Request rejected with status 404, no longer watched"));
+    }
+
+    @Test
+    void stopsWatchingAfterConsecutiveFailures() {
+        MinesweeperClient client = new MinesweeperClient(server.getHostname(), server.getPort(), new TransportConfig(), ResiliencePolicy.none());
+        assertTrue(client.login("watcher", "password"));
+        int id = client.new_game(4, 4, 3).getId();
+        server.stop();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> watcher(client).watch(new int[]{id}, new PrintStream(out, true, StandardCharsets.UTF_8)));
+        String events = out.toString(StandardCharsets.UTF_8);
+        assertTrue(events.contains("no longer watched"));
+        assertEquals(GameWatcher.MAX_FAILURES, events.split("error:").length - 1, events);
+    }
+}
@@ -0,0 +1,216 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Injects failures with a scripted server and checks how {@link HTTPClient} retries, hedges, cuts off and reports them
+ */
+class HTTPClientResilienceTest {
+
+    // Retries quickly and never opens the circuit, so retries are tested alone
+    private static final ResiliencePolicy RETRY = new ResiliencePolicy(2, Duration.ofMillis(5), Duration.ofMillis(20),
+            0, Duration.ZERO, 0);
+    // Opens the circuit after two failures for a short time, without retries
+    private static final ResiliencePolicy BREAKER = new ResiliencePolicy(0, Duration.ZERO, Duration.ZERO,
+            2, Duration.ofMillis(300), 0);
+    // Hedges past the median latency, without retries or circuit
+    private static final ResiliencePolicy HEDGE = new ResiliencePolicy(0, Duration.ZERO, Duration.ZERO,
+            0, Duration.ZERO, 50);
+
+    private FaultServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new FaultServer();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    private HTTPClient client(ResiliencePolicy policy) {
+        return new HTTPClient(server.getHostname(), server.getPort(), new TransportConfig(), policy);
+    }
+
+    private HTTPClient client(ResiliencePolicy policy, Duration requestTimeout) {
+        return new HTTPClient(server.getHostname(), server.getPort(),
+                new TransportConfig().withRequestTimeout(requestTimeout), policy);
+    }
+
+    @Test
+    void retriesServerErrorsOfIdempotentRequests() {
+        server.reply(503).reply(502).replyGame(7, 0);
+
+        assertEquals(7, client(RETRY).get_game("token", 7).orElseThrow().id);
+        assertEquals(3, server.getRequests());
+    }
+
+    @Test
+    void retriesServerErrorsWithoutBlocking() {
+        server.reply(504).replyGame(7, 0);
+
+        assertEquals(7, client(RETRY).get_game_async("token", 7).join().orElseThrow().id);
+        assertEquals(2, server.getRequests());
+    }
+
+    @Test
+    void reportsTheLastServerErrorOnceRetriesRunOut() {
+        server.reply(503).reply(503).reply(503);
+
+        RequestRejectedException e = assertThrows(RequestRejectedException.class, () -> client(RETRY).get_game("token", 7));
+        assertEquals(503, e.getStatus());
+        assertEquals(Endpoint.GET, e.getEndpoint());
+        assertEquals(3, server.getRequests());
+    }
+
+    @Test
+    void neverRetriesActions() {
+        server.reply(503);
+
+        RequestRejectedException e = assertThrows(RequestRejectedException.class,
+                () -> client(RETRY).do_action("token", 7, 0, 0, Action.SWIPE));
+        assertEquals(503, e.getStatus());
+        assertEquals(1, server.getRequests());
+    }
+
+    @Test
+    void retriesTimeouts() {
+        server.replyGame(1, 2000).replyGame(7, 0);
+
+        assertEquals(7, client(RETRY, Duration.ofMillis(200)).get_game("token", 7).orElseThrow().id);
+        assertEquals(2, server.getRequests());
+    }
+
+    @Test
+    void reportsTimeouts() {
+        server.replyGame(1, 2000);
+
+        assertThrows(RequestTimeoutException.class, () -> client(ResiliencePolicy.none(), Duration.ofMillis(200)).get_game("token", 1));
+    }
+
+    @Test
+    void mapsRejectedTokensToUnauthorized() {
+        server.reply(401);
+
+        UnauthorizedException e = assertThrows(UnauthorizedException.class, () -> client(RETRY).list_games("token"));
+        assertEquals(401, e.getStatus());
+        assertEquals(Endpoint.LIST, e.getEndpoint());
+        assertEquals(1, server.getRequests());
+    }
+
+    @Test
+    void mapsOtherErrorStatusesToRejected() {
+        server.reply(404);
+
+        RequestRejectedException e = assertThrows(RequestRejectedException.class, () -> client(RETRY).get_game("token", 7));
+        assertFalse(e instanceof UnauthorizedException);
+        assertEquals(404, e.getStatus());
+        assertEquals(1, server.getRequests());
+    }
+
+    @Test
+    void refusedActionsAreNotFailures() {
+        server.reply(409);
+
+        assertFalse(client(RETRY).do_action("token", 7, 0, 0, Action.SWIPE));
+    }
+
+    @Test
+    void opensCircuitAfterConsecutiveFailures() {
+        HTTPClient client = client(BREAKER);
+        server.reply(500).reply(500);
+        assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+        assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+
+        assertThrows(CircuitOpenException.class, () -> client.get_game("token", 1));
+        assertThrows(CircuitOpenException.class, () -> client.do_action("token", 1, 0, 0, Action.SWIPE));
+        assertEquals(2, server.getRequests());
+    }
+
+    @Test
+    void successfulProbeClosesCircuit() throws InterruptedException {
+        HTTPClient client = client(BREAKER);
+        server.reply(500).reply(500);
+        assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+        assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+
+        Thread.sleep(350);
+        assertTrue(client.get_game("token", 1).isPresent());
+        assertTrue(client.get_game("token", 1).isPresent());
+        assertEquals(4, server.getRequests());
+    }
+
+    @Test
+    void failedProbeOpensCircuitAgain() throws InterruptedException {
+        HTTPClient client = client(BREAKER);
+        server.reply(500).reply(500).reply(500);
+        assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+        assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+
+        Thread.sleep(350);
+        assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+        assertThrows(CircuitOpenException.class, () -> client.get_game("token", 1));
+        assertEquals(3, server.getRequests());
+    }
+
+    @Test
+    void circuitIsNotSharedWithOtherPolicies() {
+        HTTPClient client = client(BREAKER);
+        server.reply(500).reply(500);
+        assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+        assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+        assertThrows(CircuitOpenException.class, () -> client.get_game("token", 1));
+
+        assertTrue(client(ResiliencePolicy.none()).get_game("token", 1).isPresent());
+        assertEquals(3, server.getRequests());
+    }
+
+    @Test
+    void hedgeReturnsTheFirstResponse() {
+        HTTPClient client = client(HEDGE);
+        prime();
+        server.replyGame(1, 2000).replyGame(2, 0);
+
+        long start = System.nanoTime();
+        assertEquals(2, client.get_game("token", 1).orElseThrow().id);
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test
+    void hedgeWaitsForASuccessOverAServerError() {
+        HTTPClient client = client(HEDGE);
+        prime();
+        server.replyGame(1, 500).reply(503);
+
+        assertEquals(1, client.get_game("token", 1).orElseThrow().id);
+    }
+
+    @Test
+    void hedgeReportsAServerErrorWhenBothAttemptsFail() {
+        HTTPClient client = client(HEDGE);
+        prime();
+        server.reply(502, 500).reply(503);
+
+        RequestRejectedException e = assertThrows(RequestRejectedException.class, () -> client.get_game("token", 1));
+        assertEquals(502, e.getStatus());
+    }
+
+    /**
+     * Records enough fast requests for the hedging percentile to be trusted. They are sent without hedging,
+     * so no hedge of theirs arrives late and takes a reply scripted for the test.
+     */
+    private void prime() {
+        ClientMetrics.shared().reset();
+        HTTPClient primer = client(ResiliencePolicy.none());
+        for (int i = 0; i < 2 * ResiliencePolicy.HEDGE_MIN_SAMPLES; i++)
+            primer.get_game("token", 0);
+    }
+}
@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads a game from many threads at once and checks that {@link MinesweeperClient} shares the requests in flight
+ * without ever answering a read with a state older than an action that completed before it started
+ */
+class MinesweeperClientCoalescingTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 50;
+    // Large enough for a read to take longer than an action, so reads are often in flight while one completes
+    private static final int ROWS = 100;
+    private static final int COLS = 100;
+    private static final int MARKS = 64;
+
+    private EmbeddedServer server;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = EmbeddedServer.start();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+        server.stop();
+    }
+
+    private MinesweeperClient client() {
+        MinesweeperClient client = new MinesweeperClient(server.getHostname(), server.getPort());
+        assertTrue(client.login("coalescing", "password"));
+        return client;
+    }
+
+    @Test
+    void concurrentReadsShareRequests() throws Exception {
+        MinesweeperClient client = client();
+        int id = client.new_game(ROWS, COLS, 10).getId();
+        ClientMetrics.shared().reset();
+
+        // Every round releases all the threads at once, so their reads overlap
+        CyclicBarrier round = new CyclicBarrier(THREADS);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            readers.add(executor.submit(() -> {
+                for (int j = 0; j < ROUNDS; j++) {
+                    round.await();
+                    assertEquals(id, client.get_game(id).getId());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> reader : readers)
+            reader.get();
+
+        EndpointStats stats = ClientMetrics.shared().get(Endpoint.GET);
+        assertEquals(THREADS * ROUNDS, stats.getRequests() + stats.getCoalesced());
+        assertTrue(stats.getRequests() < THREADS * ROUNDS, stats.getRequests() + " requests for " + THREADS * ROUNDS + " reads");
+    }
+
+    @Test
+    void readsStartedAfterAnActionSeeIt() throws Exception {
+        MinesweeperClient client = client();
+        int id = client.new_game(ROWS, COLS, 10).getId();
+
+        // Cells are marked in order, so a read started after n marks completed must see the first n marked
+        AtomicInteger marked = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger reads = new AtomicInteger();
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            readers.add(executor.submit(() -> {
+                while (!done.get()) {
+                    // Spreads the reads out, so some of them start while another one is in flight
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(20));
+                    int seen = marked.get();
+                    Board board = client.get_game(id).get_board();
+                    for (int cell = 0; cell < seen; cell++)
+                        assertEquals(Board.MARKED, board.get(cell / COLS, cell % COLS),
+                                "Cell " + cell + " not marked in a read started after " + seen + " marks");
+                    reads.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        for (int cell = 0; cell < MARKS; cell++) {
+            assertTrue(client.do_action(id, cell / COLS, cell % COLS, Action.MARK));
+            marked.incrementAndGet();
+        }
+        done.set(true);
+        for (Future<?> reader : readers)
+            reader.get();
+
+        assertTrue(reads.get() > THREADS);
+    }
+
+    @Test
+    void readStartedAfterAnActionDoesNotShareOneStartedBefore() throws Exception {
+        try (FaultServer faults = new FaultServer()) {
+            faults.reply(200, "{\"token\":\"token\"}", 0)
+                    // Answered with the state before the action, once the action completed
+                    .replyGame(7, "#", 500)
+                    .reply(200)
+                    .replyGame(7, Action.MARK, 0);
+            MinesweeperClient client = new MinesweeperClient(faults.getHostname(), faults.getPort());
+            assertTrue(client.login("coalescing", "password"));
+
+            Future<Game> before = executor.submit(() -> client.get_game(7));
+            while (faults.getRequests() < 2)
+                Thread.sleep(1);
+            assertTrue(client.do_action(7, 0, 0, Action.MARK));
+
+            assertEquals(Action.MARK, client.get_game(7).get_cell(0, 0));
+            assertEquals("#", before.get().get_cell(0, 0));
+            assertEquals(4, faults.getRequests());
+        }
+    }
+}